@@ -0,0 +1,86 @@
+/*
+ * Copyright 2023 ArangoDB GmbH, Cologne, Germany
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Copyright holder is ArangoDB GmbH, Cologne, Germany
+ */
+
+package com.arangodb.kafka;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Additive-increase/multiplicative-decrease controller of the batch size. The size is increased while the write
+ * latency per document does not get worse, decreased on latency regressions and halved on transient errors.
+ */
+class AdaptiveBatchSize {
+    private final static Logger LOG = LoggerFactory.getLogger(AdaptiveBatchSize.class);
+
+    // latency per document higher than the average by this factor is considered a regression
+    private final static double REGRESSION_FACTOR = 1.2;
+    private final static double AVG_WEIGHT = 0.2;
+
+    private final int minSize;
+    private final int maxSize;
+    private final int step;
+    private volatile int size;
+    private double avgLatencyPerDoc;
+
+    AdaptiveBatchSize(int minSize, int maxSize) {
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        step = Math.max(1, (maxSize - minSize) / 20);
+        size = maxSize;
+        avgLatencyPerDoc = -1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param docs         number of documents in the batch
+     * @param latencyNanos time elapsed to write the batch
+     */
+    void onSuccess(int docs, long latencyNanos) {
+        // the latency of small batches is dominated by the fixed cost of the request
+        if (docs == 0 || docs < size / 2) {
+            return;
+        }
+        double latencyPerDoc = (double) latencyNanos / docs;
+        if (avgLatencyPerDoc < 0) {
+            avgLatencyPerDoc = latencyPerDoc;
+            return;
+        }
+        if (latencyPerDoc > avgLatencyPerDoc * REGRESSION_FACTOR) {
+            resize(size - step);
+        } else {
+            resize(size + step);
+        }
+        avgLatencyPerDoc += AVG_WEIGHT * (latencyPerDoc - avgLatencyPerDoc);
+    }
+
+    void onTransientError() {
+        resize(size / 2);
+    }
+
+    private void resize(int newSize) {
+        int bounded = Math.max(minSize, Math.min(maxSize, newSize));
+        if (bounded != size) {
+            LOG.debug("Adapting batch size: {} -> {}", size, bounded);
+            size = bounded;
+        }
+    }
+}
@@ -71,6 +71,11 @@ public class ArangoSinkConnector extends SinkConnector {
             rotationDistance = 1;
         }
 
+        // rate limits are split across the tasks
+        ArangoSinkConfig sinkConfig = new ArangoSinkConfig(config);
+        double docsPerSec = sinkConfig.getRateLimitDocsPerSec() / maxTasks;
+        double bytesPerSec = sinkConfig.getRateLimitBytesPerSec() / maxTasks;
+
         List<Map<String, String>> configs = new ArrayList<>(maxTasks);
         for (int i = 0; i < maxTasks; i++) {
             Collections.rotate(endpoints, rotationDistance);
@@ -79,6 +84,8 @@ public class ArangoSinkConnector extends SinkConnector {
                     .collect(Collectors.joining(","));
             Map<String, String> taskCfg = new HashMap<>(config);
             taskCfg.put(ArangoSinkConfig.CONNECTION_ENDPOINTS, taskEndpoints);
+            taskCfg.put(ArangoSinkConfig.RATE_LIMIT_DOCS_PER_SEC, String.valueOf(docsPerSec));
+            taskCfg.put(ArangoSinkConfig.RATE_LIMIT_BYTES_PER_SEC, String.valueOf(bytesPerSec));
             configs.add(taskCfg);
             LOG.info("task #{} config: {}", i, new ArangoSinkConfig(taskCfg));
         }
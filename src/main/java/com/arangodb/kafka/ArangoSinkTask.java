@@ -19,21 +19,44 @@
 package com.arangodb.kafka;
 
 import com.arangodb.ArangoCollection;
+import com.arangodb.ArangoDatabase;
 import com.arangodb.entity.Permissions;
 import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.config.ArangoSinkConfig.LanesRouting;
+import com.arangodb.kafka.conversion.EdgeConverter;
+import com.arangodb.kafka.conversion.KeyConverter;
+import com.arangodb.kafka.conversion.RecordConverter;
+import com.arangodb.kafka.conversion.TargetRouter;
+import com.arangodb.kafka.conversion.VersionConverter;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.errors.RetriableException;
 import org.apache.kafka.connect.sink.SinkRecord;
 import org.apache.kafka.connect.sink.SinkTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collection;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class ArangoSinkTask extends SinkTask {
     private static final Logger LOG = LoggerFactory.getLogger(ArangoSinkTask.class);
     private ArangoCollection col;
-    private ArangoWriter writer;
+    private List<ArangoWriter> lanes;
+    private LanesRouting lanesRouting;
+    private KeyConverter keyConverter;
+    private RecordConverter converter;
+    private TargetRouter router;
+    private Map<TopicPartition, Integer> laneAssignment;
+    private DeferredTaskContext lanesContext;
+    private ExecutorService executor;
+    // null if exactly once is disabled
+    private OffsetStore offsetStore;
 
     @Override
     public String version() {
@@ -47,26 +70,203 @@ public class ArangoSinkTask extends SinkTask {
         ArangoSinkConfig config = new ArangoSinkConfig(props);
         LOG.info("task config: {}", config);
         col = config.createCollection();
-        writer = new ArangoWriter(config, col, context);
+        createLanes(config);
         config.logUnused();
 
         testConnectivity();
-        testPermissions(config.getUser());
+        TargetRouter targetRouter = new TargetRouter(config);
+        if (targetRouter.isEnabled()) {
+            // target collections are not known in advance, their permissions are checked by the server on write
+            testDatabasePermissions(config.getUser(), col.db());
+            // databases routed by header are not known in advance either
+            for (String database : new HashSet<>(config.getTopicDatabases().values())) {
+                testDatabasePermissions(config.getUser(), col.db().arango().db(database));
+            }
+        }
+        if (!config.getCollection().contains(TargetRouter.TOPIC_PLACEHOLDER)) {
+            testPermissions(config.getUser());
+        }
+        if (config.isExactlyOnceEnabled()) {
+            ArangoCollection offsetsCol = col.db().collection(config.getExactlyOnceOffsetsCollection());
+            testOffsetsCollection(config.getUser(), offsetsCol);
+            offsetStore = new OffsetStore(offsetsCol);
+        }
+    }
+
+    @Override
+    public void open(Collection<TopicPartition> partitions) {
+        for (TopicPartition tp : partitions) {
+            assignLane(tp);
+        }
+        LOG.debug("Lanes assignment: {}", laneAssignment);
+        if (lanesContext != null) {
+            lanesContext.open(partitions);
+        }
+        if (offsetStore != null) {
+            // the offsets written together with the records take precedence over the committed ones
+            Map<TopicPartition, Long> offsets = offsetStore.read(partitions);
+            if (!offsets.isEmpty()) {
+                LOG.info("Seeking to the offsets stored in ArangoDB: {}", offsets);
+                context.offset(offsets);
+            }
+        }
     }
 
     @Override
     public void put(Collection<SinkRecord> records) {
-        writer.put(records);
+        if (lanes.size() == 1) {
+            lanes.get(0).put(records);
+            return;
+        }
+
+        Map<Integer, List<WriteOperation>> opsByLane = new HashMap<>();
+        for (SinkRecord record : records) {
+            WriteOperation op = WriteOperation.of(record, keyConverter, converter, router);
+            opsByLane.computeIfAbsent(routeLane(op), it -> new ArrayList<>()).add(op);
+        }
+
+        // every lane is invoked, also without records, to let it complete its in-flight batches
+        List<Future<?>> futures = new ArrayList<>(lanes.size());
+        for (int i = 0; i < lanes.size(); i++) {
+            ArangoWriter lane = lanes.get(i);
+            List<WriteOperation> laneOps = opsByLane.getOrDefault(i, Collections.emptyList());
+            futures.add(executor.submit(() -> lane.write(laneOps)));
+        }
+        awaitLanes(futures);
+    }
+
+    private int routeLane(WriteOperation op) {
+        if (LanesRouting.KEY.equals(lanesRouting)) {
+            // operations failing conversion have no key, they are reported by any lane
+            return op.key() != null ? Math.floorMod(op.key().hashCode(), lanes.size()) : 0;
+        }
+        SinkRecord record = op.record();
+        return assignLane(new TopicPartition(record.originalTopic(), record.originalKafkaPartition()));
+    }
+
+    @Override
+    public Map<TopicPartition, OffsetAndMetadata> preCommit(Map<TopicPartition, OffsetAndMetadata> currentOffsets) {
+        if (lanes.size() > 1) {
+            // flush the lanes concurrently
+            List<Future<?>> futures = new ArrayList<>(lanes.size());
+            for (ArangoWriter lane : lanes) {
+                futures.add(executor.submit(lane::flush));
+            }
+            awaitLanes(futures);
+        }
+        Map<TopicPartition, OffsetAndMetadata> offsets = currentOffsets;
+        for (ArangoWriter lane : lanes) {
+            offsets = lane.preCommit(offsets);
+        }
+        return offsets;
+    }
+
+    @Override
+    public void close(Collection<TopicPartition> partitions) {
+        if (lanes == null) {
+            return;
+        }
+        for (ArangoWriter lane : lanes) {
+            lane.close(partitions);
+        }
+        partitions.forEach(laneAssignment::remove);
+        if (lanesContext != null) {
+            // revoked partitions are consumed again from the committed offsets
+            lanesContext.close(partitions);
+            lanesContext.apply();
+        }
     }
 
     @Override
     public void stop() {
         LOG.info("stopping ArangoSinkTask");
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(ArangoSinkConfig.MONITOR_REQUEST_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException ex) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
         if (col != null) {
             col.db().arango().shutdown();
         }
     }
 
+    private void createLanes(ArangoSinkConfig config) {
+        int lanesCount = config.getWriteLanes();
+        lanes = new ArrayList<>(lanesCount);
+        laneAssignment = new HashMap<>();
+        if (lanesCount == 1) {
+            lanes.add(new ArangoWriter(config, col, context));
+            return;
+        }
+
+        lanesRouting = config.getWriteLanesRouting();
+        LOG.info("Creating {} writer lanes, routing by {}", lanesCount, lanesRouting);
+        keyConverter = new KeyConverter();
+        EdgeConverter edgeConverter = new EdgeConverter(config);
+        VersionConverter versionConverter = new VersionConverter(config);
+        converter = new RecordConverter(keyConverter, edgeConverter.isEnabled() ? edgeConverter : null,
+                versionConverter.isEnabled() ? versionConverter : null);
+        TargetRouter targetRouter = new TargetRouter(config);
+        router = targetRouter.isEnabled() ? targetRouter : null;
+        lanesContext = new DeferredTaskContext(context);
+        // a single circuit breaker for all the lanes, so that a single probe request is sent when it is half-open
+        CircuitBreaker circuitBreaker = config.isCircuitBreakerEnabled() ? new CircuitBreaker(config) : null;
+        for (int i = 0; i < lanesCount; i++) {
+            lanes.add(new ArangoWriter(config, col, lanesContext.lane(i), i, circuitBreaker));
+        }
+        executor = Executors.newFixedThreadPool(lanesCount);
+    }
+
+    /**
+     * @return the lane of the partition, assigning it to the lane with the fewest partitions if not assigned yet
+     */
+    private int assignLane(TopicPartition tp) {
+        return laneAssignment.computeIfAbsent(tp, it -> {
+            int[] load = new int[lanes.size()];
+            laneAssignment.values().forEach(lane -> load[lane]++);
+            int lane = 0;
+            for (int i = 1; i < load.length; i++) {
+                if (load[i] < load[lane]) {
+                    lane = i;
+                }
+            }
+            return lane;
+        });
+    }
+
+    private void awaitLanes(List<Future<?>> futures) {
+        RuntimeException retriable = null;
+        RuntimeException fatal = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fatal = new ConnectException(e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RetriableException) {
+                    retriable = retriable != null ? retriable : (RetriableException) cause;
+                } else if (fatal == null) {
+                    fatal = cause instanceof RuntimeException ? (RuntimeException) cause : new ConnectException(cause);
+                }
+            }
+        }
+        lanesContext.apply();
+        if (fatal != null) {
+            throw fatal;
+        }
+        if (retriable != null) {
+            throw retriable;
+        }
+    }
+
     private void testConnectivity() {
         LOG.info("testing connectivity to ArangoDB");
         Exception lastException = null;
@@ -91,4 +291,24 @@ public class ArangoSinkTask extends SinkTask {
             throw new ConnectException("User [" + user + "] has no write permissions for target collection [" + col.name() + "]");
         }
     }
+
+    private void testOffsetsCollection(String user, ArangoCollection offsetsCol) {
+        LOG.info("testing permissions to write offsets collection");
+        if (!offsetsCol.exists()) {
+            throw new ConnectException("Offsets collection [" + offsetsCol.name() + "] does not exist");
+        }
+        Permissions permissions = offsetsCol.getPermissions(user);
+        if (!Permissions.RW.equals(permissions)) {
+            throw new ConnectException("User [" + user + "] has no write permissions for offsets collection [" + offsetsCol.name() + "]");
+        }
+    }
+
+    private void testDatabasePermissions(String user, ArangoDatabase db) {
+        LOG.info("testing permissions to access ArangoDB database [{}]", db.name());
+        Permissions permissions = db.getPermissions(user);
+        LOG.info("granted database permissions: {}", permissions);
+        if (Permissions.NONE.equals(permissions)) {
+            throw new ConnectException("User [" + user + "] has no access to target database [" + db.name() + "]");
+        }
+    }
 }
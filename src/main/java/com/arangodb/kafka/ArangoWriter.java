@@ -19,15 +19,32 @@
 package com.arangodb.kafka;
 
 import com.arangodb.ArangoCollection;
+import com.arangodb.ArangoCollectionAsync;
 import com.arangodb.ArangoDBException;
+import com.arangodb.ArangoDatabase;
+import com.arangodb.ArangoDatabaseAsync;
+import com.arangodb.ArangoMetrics;
+import com.arangodb.entity.DocumentCreateEntity;
+import com.arangodb.entity.DocumentDeleteEntity;
+import com.arangodb.entity.DocumentImportEntity;
 import com.arangodb.entity.ErrorEntity;
+import com.arangodb.entity.MultiDocumentEntity;
+import com.arangodb.kafka.WriteOperation.Type;
 import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.config.ArangoSinkConfig.WriteStrategy;
+import com.arangodb.kafka.conversion.Aggregator;
+import com.arangodb.kafka.conversion.EdgeConverter;
 import com.arangodb.kafka.conversion.KeyConverter;
 import com.arangodb.kafka.conversion.RecordConverter;
+import com.arangodb.kafka.conversion.TargetRouter;
+import com.arangodb.kafka.conversion.VersionConverter;
+import com.arangodb.model.AqlQueryOptions;
 import com.arangodb.model.DocumentCreateOptions;
 import com.arangodb.model.DocumentDeleteOptions;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.arangodb.model.DocumentImportOptions;
+import com.arangodb.model.StreamTransactionOptions;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.connect.errors.ConnectException;
 import org.apache.kafka.connect.errors.DataException;
 import org.apache.kafka.connect.errors.RetriableException;
@@ -38,13 +55,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 public class ArangoWriter {
-    private enum Type {INSERT, DELETE}
-
     private final static Logger LOG = LoggerFactory.getLogger(ArangoWriter.class);
+    private final static Set<Integer> TARGET_NOT_FOUND_NUMS = new HashSet<>(Arrays.asList(
+            1203,   // collection or view not found
+            1228    // database not found
+    ));
     private final static Set<Integer> DATA_ERROR_NUMS = new HashSet<>(Arrays.asList(
             1208,   // illegal name (document violating smart collection key)
             1210,   // unique constraint violated
@@ -74,208 +99,1573 @@ public class ArangoWriter {
             4010    // non-disjoint edge found
     ));
 
+    private final static Pattern IMPORT_ERROR_POSITION = Pattern.compile("^at position (\\d+):");
+
     private final ArangoCollection col;
+    private final ArangoCollectionAsync colAsync;
     private final ErrantRecordReporter reporter;
     private final SinkTaskContext context;
     private final KeyConverter keyConverter;
     private final RecordConverter converter;
+    // null if all the records are written to the default collection
+    private final TargetRouter router;
+    // keyed by database and collection, null for the default ones
+    private final Map<List<String>, Target> targets;
     private final DocumentCreateOptions createOptions;
     private final DocumentDeleteOptions deleteOptions;
+    // null if silent writes are disabled
+    private final DocumentCreateOptions silentCreateOptions;
+    private final DocumentDeleteOptions silentDeleteOptions;
     private final int batchSize;
+    private final AdaptiveBatchSize adaptiveBatchSize;
+    private final int batchMaxBytes;
     private final boolean deleteEnabled;
     private final int maxRetries;
-    private final int retryBackoffMs;
+    private final int maxDocumentRetries;
+    private final int documentRetryBackoffMs;
+    private final RetryBackoff retryBackoff;
+    private final CircuitBreaker circuitBreaker;
+    private final Set<TopicPartition> breakerPaused;
     private final boolean tolerateDataErrors;
     private final boolean logDataErrors;
     private final Set<Integer> extraDataErrorsNums;
-    private int remainingRetries;
-    private int currentOffset;
+    private final boolean compactionEnabled;
+    private final boolean coalescingEnabled;
+    private final boolean mergeObjects;
+    private final boolean mixedBatchesEnabled;
+    private final String upsertQuery;
+    private final AqlQueryOptions queryOptions;
+    private final DocumentImportOptions importOptions;
+    private final int maxInFlight;
+    private final int lingerMs;
+    private final int backpressureQueueTimeMs;
+    private final int backpressureMaxDelayMs;
+    private final RateLimiter rateLimiter;
+    private final ArangoMetrics arangoMetrics;
+    // null if exactly once is disabled
+    private final OffsetStore offsetStore;
+    // null if aggregation is disabled
+    private final Aggregator aggregator;
+    private final int aggregationMaxKeys;
+    private final Map<List<Object>, WriteOperation> aggregates;
+    // accumulators that failed to be written by a flush, retried by the next one instead of being consumed again, since
+    // the other accumulators of their partitions may have been written already
+    private Map<List<Object>, WriteOperation> retained;
+    private final List<WriteOperation> buffer;
+    private long bufferedSince;
+    private long bufferedBytes;
+    private ConnectException deferredError;
+    private final Deque<PendingBatch> pending;
+    private final Map<TopicPartition, Long> rewound;
+    private final Map<TopicPartition, Long> paused;
+    private final Map<TopicPartition, Integer> partitionFailures;
+    private final boolean rewindEnabled;
+    // partition and offset of the first record of the batch failing with transient errors, across redelivered puts
+    private List<Object> failingBatch;
+    private int batchFailures;
     private SinkRecord errorRecord;
+    // time the writes of the current put or flush have been delayed by the backpressure
+    private long backpressureDelayMs;
 
     public ArangoWriter(ArangoSinkConfig config, ArangoCollection col, SinkTaskContext context) {
+        this(config, col, context, 0);
+    }
+
+    public ArangoWriter(ArangoSinkConfig config, ArangoCollection col, SinkTaskContext context, int lane) {
+        this(config, col, context, lane, config.isCircuitBreakerEnabled() ? new CircuitBreaker(config) : null);
+    }
+
+    /**
+     * @param circuitBreaker the circuit breaker, possibly shared with the other lanes of the task, or {@code null} if
+     *                       disabled
+     */
+    ArangoWriter(ArangoSinkConfig config, ArangoCollection col, SinkTaskContext context, int lane,
+                 CircuitBreaker circuitBreaker) {
         createOptions = config.getCreateOptions();
         deleteOptions = config.getDeleteOptions();
+        if (config.isSilentEnabled()) {
+            LOG.info("Silent writes enabled");
+            silentCreateOptions = config.getCreateOptions().silent(true);
+            silentDeleteOptions = config.getDeleteOptions().silent(true);
+        } else {
+            silentCreateOptions = null;
+            silentDeleteOptions = null;
+        }
         batchSize = config.getBatchSize();
+        if (config.isAdaptiveBatchSizeEnabled()) {
+            LOG.info("Adaptive batch size enabled, min size: {}, max size: {}", config.getAdaptiveBatchMinSize(), batchSize);
+            adaptiveBatchSize = new AdaptiveBatchSize(config.getAdaptiveBatchMinSize(), batchSize);
+        } else {
+            adaptiveBatchSize = null;
+        }
+        batchMaxBytes = config.getBatchMaxBytes();
         deleteEnabled = config.isDeleteEnabled();
         maxRetries = config.getMaxRetries();
-        retryBackoffMs = config.getRetryBackoffMs();
+        // buffered and aggregated records are not redelivered by the framework
+        rewindEnabled = config.isRetryRewindEnabled() || config.getBatchLingerMs() > 0 || config.isAggregationEnabled();
+        maxDocumentRetries = config.getMaxDocumentRetries();
+        documentRetryBackoffMs = config.getDocumentRetryBackoffMs();
+        retryBackoff = new RetryBackoff(config);
+        this.circuitBreaker = circuitBreaker;
+        breakerPaused = new HashSet<>();
         tolerateDataErrors = config.getTolerateDataErrors();
         logDataErrors = config.getLogDataErrors();
         extraDataErrorsNums = config.getExtraDataErrorsNums();
-        remainingRetries = maxRetries;
-        currentOffset = 0;
+        compactionEnabled = config.isCompactionEnabled();
+        coalescingEnabled = config.isCoalescingEnabled();
+        mergeObjects = config.isMergeObjects();
+        mixedBatchesEnabled = config.isMixedBatchesEnabled();
+        if (config.isAggregationEnabled()) {
+            upsertQuery = config.getAggregationQuery();
+            queryOptions = config.getQueryOptions();
+            LOG.info("Aggregating documents with query: {}", upsertQuery);
+        } else if (config.isEdgeVerticesEnabled()) {
+            upsertQuery = config.getGraphQuery();
+            queryOptions = config.getQueryOptions();
+            LOG.info("Writing edges and their vertices with query: {}", upsertQuery);
+        } else if (WriteStrategy.AQL_UPSERT.equals(config.getWriteStrategy())) {
+            upsertQuery = config.getUpsertQuery();
+            queryOptions = config.getQueryOptions();
+            LOG.info("Writing documents with query: {}", upsertQuery);
+        } else {
+            upsertQuery = null;
+            queryOptions = null;
+        }
+        importOptions = WriteStrategy.IMPORT.equals(config.getWriteStrategy()) ? config.getImportOptions() : null;
+        maxInFlight = config.getMaxInFlightBatches();
+        lingerMs = config.getBatchLingerMs();
+        if (config.getRateLimitDocsPerSec() > 0 || config.getRateLimitBytesPerSec() > 0) {
+            // the task limits are split across the lanes
+            rateLimiter = new RateLimiter(config.getRateLimitDocsPerSec() / config.getWriteLanes(),
+                    config.getRateLimitBytesPerSec() / config.getWriteLanes());
+        } else {
+            rateLimiter = null;
+        }
+        Aggregator configuredAggregator = new Aggregator(config);
+        aggregator = configuredAggregator.isEnabled() ? configuredAggregator : null;
+        aggregationMaxKeys = config.getAggregationMaxKeys();
+        aggregates = new LinkedHashMap<>();
+        retained = new LinkedHashMap<>();
+        buffer = new ArrayList<>();
+        pending = new ArrayDeque<>();
+        rewound = new HashMap<>();
+        paused = new HashMap<>();
+        partitionFailures = new HashMap<>();
+        failingBatch = null;
+        batchFailures = 0;
         errorRecord = null;
 
         this.col = col;
         this.context = context;
 
+        backpressureQueueTimeMs = config.getBackpressureQueueTimeMs();
+        backpressureMaxDelayMs = config.getBackpressureMaxDelayMs();
+        arangoMetrics = backpressureQueueTimeMs > 0 ? col.db().arango().metrics() : null;
+        if (config.isExactlyOnceEnabled()) {
+            LOG.info("Exactly once enabled, offsets collection: {}", config.getExactlyOnceOffsetsCollection());
+            offsetStore = new OffsetStore(col.db().collection(config.getExactlyOnceOffsetsCollection()));
+        } else {
+            offsetStore = null;
+        }
+
+        if (maxInFlight > 0) {
+            LOG.info("Asynchronous writes enabled, max in-flight batches: {}", maxInFlight);
+        }
+        // mixed batches send inserts and deletes concurrently
+        if (maxInFlight > 0 || mixedBatchesEnabled) {
+            colAsync = col.db().arango().async().db(col.db().name()).collection(col.name());
+        } else {
+            colAsync = null;
+        }
+
         reporter = context.errantRecordReporter();
         if (reporter == null) {
             LOG.info("Errant record reporter not configured.");
         }
 
         keyConverter = new KeyConverter();
-        converter = new RecordConverter(keyConverter);
+        EdgeConverter edgeConverter = new EdgeConverter(config);
+        VersionConverter versionConverter = new VersionConverter(config);
+        converter = new RecordConverter(keyConverter, edgeConverter.isEnabled() ? edgeConverter : null,
+                versionConverter.isEnabled() ? versionConverter : null);
+        TargetRouter targetRouter = new TargetRouter(config);
+        router = targetRouter.isEnabled() ? targetRouter : null;
+        targets = new HashMap<>();
+        targets.put(Arrays.asList(null, null), new Target(col, colAsync));
+
+        WriterMetrics metrics = new WriterMetrics(context, lane);
+        metrics.gauge("batch-size", "Current maximum number of records per batch", this::getBatchSize);
+        metrics.gauge("retries-total", "Number of retries of transient errors", retryBackoff::retries);
+        metrics.gauge("retry-backoff-time-ms-total", "Total time in milliseconds waited before retries",
+                retryBackoff::backoffTimeMs);
+        metrics.gauge("retry-budget-exhausted-total", "Number of transient errors not retried because the retry "
+                + "budget was exhausted", retryBackoff::budgetExhausted);
+        if (arangoMetrics != null) {
+            metrics.gauge("queue-time-avg-ms", "Average server queue time in milliseconds of the recent responses",
+                    () -> arangoMetrics.getQueueTime().getAvg() * 1000);
+        }
+        if (circuitBreaker != null) {
+            metrics.gauge("circuit-breaker-state", "Current state of the circuit breaker",
+                    () -> circuitBreaker.state().toString());
+        }
+    }
+
+    /**
+     * @return the current maximum batch size, adapted at runtime if adaptive batch size is enabled
+     */
+    int getBatchSize() {
+        return adaptiveBatchSize != null ? adaptiveBatchSize.size() : batchSize;
     }
 
     public void put(Collection<SinkRecord> records) {
-        if (records.isEmpty()) {
+        List<WriteOperation> ops = new ArrayList<>(records.size());
+        for (SinkRecord record : records) {
+            ops.add(WriteOperation.of(record, keyConverter, converter, router));
+        }
+        write(ops);
+    }
+
+    /**
+     * Writes the given operations, in order. If {@link #lingerMs} is set, the operations are buffered until a full
+     * batch is available or the linger time is expired.
+     */
+    void write(List<WriteOperation> ops) {
+        if (deferredError != null) {
+            ConnectException e = deferredError;
+            deferredError = null;
+            throw e;
+        }
+
+        // rewinds are applied by the framework before delivering the next records
+        rewound.clear();
+        backpressureDelayMs = 0;
+        if (circuitBreaker != null && !checkCircuitBreaker()) {
+            // redelivered by the framework, without consuming retries
+            throw new RetriableException("Circuit breaker is open.");
+        }
+        resumePaused();
+
+        if (aggregator != null) {
+            writeNow(aggregate(ops));
+            if (aggregates.size() + retained.size() >= aggregationMaxKeys) {
+                flushAggregates();
+            }
+            return;
+        }
+
+        if (lingerMs <= 0) {
+            writeNow(ops);
             return;
         }
 
-        LOG.trace("Handling {} record(s)", records.size());
-        ArrayList<SinkRecord> recordsList = new ArrayList<>(records);
-        while (currentOffset < records.size()) {
+        long now = System.currentTimeMillis();
+        if (buffer.isEmpty()) {
+            bufferedSince = now;
+        }
+        buffer.addAll(ops);
+        if (batchMaxBytes > 0) {
+            bufferedBytes += ops.stream().mapToLong(WriteOperation::size).sum();
+        }
+        if (buffer.size() >= getBatchSize()
+                || (batchMaxBytes > 0 && bufferedBytes >= batchMaxBytes)
+                || (!buffer.isEmpty() && now - bufferedSince >= lingerMs)) {
+            flushBuffer();
+        } else {
+            if (maxInFlight > 0) {
+                // complete the in-flight batches
+                writeNow(Collections.emptyList());
+            }
+            if (!buffer.isEmpty()) {
+                context.timeout(bufferedSince + lingerMs - now);
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered and the aggregated operations. Errors are deferred to the next {@link #put(Collection)}, and
+     * the operations are retained, so that their offsets are not committed.
+     */
+    public void flush() {
+        if ((buffer.isEmpty() && aggregates.isEmpty() && retained.isEmpty()) || deferredError != null) {
+            return;
+        }
+        backpressureDelayMs = 0;
+        try {
+            if (!buffer.isEmpty()) {
+                flushBuffer();
+            }
+            if (!aggregates.isEmpty() || !retained.isEmpty()) {
+                flushAggregates();
+            }
+        } catch (ConnectException e) {
+            LOG.warn("Got exception while flushing buffered records, deferring it to the next put: ", e);
+            deferredError = e;
+        }
+    }
+
+    /**
+     * Writes the aggregated operations, together with the ones retained by the previous flushes. The accumulators
+     * failing with transient errors are retained, see {@link #retainAggregates(List)}.
+     */
+    private void flushAggregates() {
+        Map<List<Object>, WriteOperation> flushed = retained;
+        // the retained accumulators precede the ones of the same documents aggregated afterwards
+        aggregates.forEach((key, op) -> flushed.merge(key, op, (previous, next) -> {
+            previous.accumulate(next, aggregator);
+            return previous;
+        }));
+        aggregates.clear();
+        retained = new LinkedHashMap<>();
+        LOG.trace("Flushing {} aggregated document(s)", flushed.size());
+        writeNow(new ArrayList<>(flushed.values()));
+    }
+
+    /**
+     * Retains the accumulators among the given operations not written, so that they are written by the next flush.
+     * Rewinding their partitions instead would aggregate again the records of the accumulators already written by the
+     * same flush.
+     *
+     * @return the other operations, i.e. the ones to consume again
+     */
+    private List<WriteOperation> retainAggregates(List<WriteOperation> ops) {
+        if (aggregator == null) {
+            return ops;
+        }
+        List<WriteOperation> others = new ArrayList<>();
+        for (WriteOperation op : ops) {
+            if (Type.DELETE.equals(op.type())) {
+                others.add(op);
+            } else {
+                retained.merge(aggregateKey(op), op, (previous, next) -> {
+                    previous.accumulate(next, aggregator);
+                    return previous;
+                });
+            }
+        }
+        return others;
+    }
+
+    private static List<Object> aggregateKey(WriteOperation op) {
+        return Arrays.asList(partition(op.record()), op.database(), op.collection(), op.key());
+    }
+
+    /**
+     * Accumulates the inserts into {@link #aggregates}, keyed by partition and document, so that the record retained
+     * by each accumulator is the first aggregated record of its partition. Operations that cannot be aggregated, e.g.
+     * with non-numeric values of summed fields, are reported as data errors of their records.
+     *
+     * @return the operations to write immediately, i.e. deletes
+     */
+    private List<WriteOperation> aggregate(List<WriteOperation> ops) {
+        List<WriteOperation> direct = new ArrayList<>();
+        for (WriteOperation op : ops) {
+            if (op.error() != null) {
+                reportConversionError(op);
+                continue;
+            }
+            List<Object> key = aggregateKey(op);
+            if (Type.DELETE.equals(op.type())) {
+                // the accumulated values would be deleted anyway
+                aggregates.remove(key);
+                retained.remove(key);
+                direct.add(op);
+                continue;
+            }
+            WriteOperation accumulator = op.accumulator(aggregator);
+            if (accumulator.error() != null) {
+                reportConversionError(accumulator);
+                continue;
+            }
+            WriteOperation previous = aggregates.putIfAbsent(key, accumulator);
+            if (previous != null) {
+                previous.accumulate(accumulator, aggregator);
+            }
+        }
+        return direct;
+    }
+
+    private void flushBuffer() {
+        LOG.trace("Flushing {} buffered record(s)", buffer.size());
+        writeNow(new ArrayList<>(buffer));
+        buffer.clear();
+        bufferedBytes = 0;
+    }
+
+    private void writeNow(List<WriteOperation> ops) {
+        // computed before compaction, which can drop the last records of the partitions
+        Map<TopicPartition, Long> endOffsets = offsetStore != null ? endOffsets(ops) : null;
+        ops = reportConversionErrors(ops);
+        if (compactionEnabled) {
+            ops = compact(ops);
+        }
+        if (coalescingEnabled) {
+            ops = coalesce(ops);
+        }
+        if (router != null) {
+            ops = groupByTarget(ops);
+        }
+        if (batchMaxBytes > 0) {
+            ops = rejectOversized(ops);
+        }
+        if (maxInFlight > 0) {
+            writeAsync(ops);
+            return;
+        }
+
+        if (ops.isEmpty()) {
+            return;
+        }
+
+        LOG.trace("Handling {} record(s)", ops.size());
+        TransientException transientError = null;
+        List<WriteOperation> unwritten = new ArrayList<>();
+        int currentOffset = 0;
+        while (currentOffset < ops.size()) {
             errorRecord = null;
-            List<SinkRecord> currentBatch = extractBatch(recordsList);
+            List<WriteOperation> currentBatch = extractBatch(ops, currentOffset);
             if (currentBatch.isEmpty()) {
                 break;
             }
 
+            if (throttle(ops.subList(currentOffset, ops.size()), currentBatch)
+                    || backpressure(ops.subList(currentOffset, ops.size()))) {
+                break;
+            }
+
             LOG.trace("Handling batch of {} record(s)", currentBatch.size());
             try {
-                handleBatch(currentBatch);
+                if (offsetStore != null) {
+                    List<WriteOperation> next = ops.subList(currentOffset + currentBatch.size(), ops.size());
+                    handleBatchInTransaction(currentBatch, nextOffsets(currentBatch, next, endOffsets));
+                } else {
+                    handleBatch(currentBatch);
+                }
+                partitions(currentBatch).forEach(partitionFailures::remove);
             } catch (DataException e) {
                 handleDataException(e);
             } catch (TransientException e) {
-                handleTransientException(e);
+                if (rewindEnabled) {
+                    // skip the remaining records of the failed partitions, preserving their order, and keep writing
+                    // the records of the other partitions
+                    Set<TopicPartition> failed = partitions(currentBatch);
+                    List<WriteOperation> remaining = new ArrayList<>();
+                    for (WriteOperation op : ops.subList(currentOffset, ops.size())) {
+                        if (failed.contains(partition(op.record()))) {
+                            unwritten.add(op);
+                        } else {
+                            remaining.add(op);
+                        }
+                    }
+                    transientError = transientError != null ? transientError : e;
+                    ops = remaining;
+                    currentOffset = 0;
+                    continue;
+                }
+                handleTransientException(e, currentBatch);
+            }
+            resetBatchFailures(currentBatch);
+            if (circuitBreaker != null) {
+                circuitBreaker.onSuccess();
             }
-            remainingRetries = maxRetries;
             currentOffset += currentBatch.size();
         }
-        remainingRetries = maxRetries;
-        currentOffset = 0;
+        if (transientError != null) {
+            handleTransientExceptionWithRewind(transientError, unwritten);
+        }
+    }
+
+    /**
+     * Flushes the buffered records and adjusts the offsets to commit, so that they do not include records that have
+     * not been acknowledged yet by the server, i.e. records in in-flight batches, buffered records that could not be
+     * flushed or records in partitions that have been rewound.
+     */
+    public Map<TopicPartition, OffsetAndMetadata> preCommit(Map<TopicPartition, OffsetAndMetadata> currentOffsets) {
+        flush();
+        Map<TopicPartition, Long> unacked = new HashMap<>(rewound);
+        for (PendingBatch batch : pending) {
+            batch.minOffsets.forEach((tp, offset) -> unacked.merge(tp, offset, Math::min));
+        }
+        minOffsets(records(buffer)).forEach((tp, offset) -> unacked.merge(tp, offset, Math::min));
+        minOffsets(records(new ArrayList<>(aggregates.values())))
+                .forEach((tp, offset) -> unacked.merge(tp, offset, Math::min));
+        minOffsets(records(new ArrayList<>(retained.values())))
+                .forEach((tp, offset) -> unacked.merge(tp, offset, Math::min));
+        if (unacked.isEmpty()) {
+            return currentOffsets;
+        }
+
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>(currentOffsets);
+        unacked.forEach((tp, offset) -> {
+            OffsetAndMetadata current = offsets.get(tp);
+            if (current != null && current.offset() > offset) {
+                offsets.put(tp, new OffsetAndMetadata(offset, current.metadata()));
+            }
+        });
+        LOG.trace("Committable offsets: {}", offsets);
+        return offsets;
     }
 
-    private List<SinkRecord> extractBatch(List<SinkRecord> records) {
-        List<SinkRecord> offsetRecords = records.subList(currentOffset, records.size());
-        if (offsetRecords.isEmpty()) {
-            return offsetRecords;
+    /**
+     * Waits for the completion of all the in-flight batches and stops tracking the given partitions.
+     */
+    public void close(Collection<TopicPartition> partitions) {
+        while (!pending.isEmpty()) {
+            errorRecord = null;
+            try {
+                completeHead();
+            } catch (TransientException e) {
+                // offsets of the failed records have not been committed, they will be consumed again
+                LOG.warn("Got transient exception while closing, discarding in-flight batch: ", e);
+                pending.poll();
+            }
         }
-        Type batchType = getType(offsetRecords.get(0));
-        int toIndex = IntStream.range(0, offsetRecords.size())
-                .filter(i -> !batchType.equals(getType(offsetRecords.get(i))))
+        // buffered records have not been committed, they will be consumed again
+        buffer.removeIf(it -> partitions.contains(partition(it.record())));
+        aggregates.values().removeIf(it -> partitions.contains(partition(it.record())));
+        retained.values().removeIf(it -> partitions.contains(partition(it.record())));
+        partitions.forEach(rewound::remove);
+        partitions.forEach(paused::remove);
+        partitions.forEach(partitionFailures::remove);
+        breakerPaused.removeAll(partitions);
+    }
+
+    private void writeAsync(List<WriteOperation> ops) {
+        if (!ops.isEmpty()) {
+            LOG.trace("Handling {} record(s)", ops.size());
+        }
+        int currentOffset = 0;
+        try {
+            completeDone();
+            while (currentOffset < ops.size()) {
+                List<WriteOperation> currentBatch = extractBatch(ops, currentOffset);
+                if (throttle(ops.subList(currentOffset, ops.size()), currentBatch)
+                        || backpressure(ops.subList(currentOffset, ops.size()))) {
+                    break;
+                }
+                submitBatch(currentBatch);
+                currentOffset += currentBatch.size();
+            }
+        } catch (TransientException e) {
+            handleTransientExceptionWithRewind(e, ops.subList(currentOffset, ops.size()));
+        }
+    }
+
+    /**
+     * Reports the operations that failed conversion as data errors of their records, so that they do not fail the
+     * batches of the other operations.
+     *
+     * @return the operations to write
+     */
+    private List<WriteOperation> reportConversionErrors(List<WriteOperation> ops) {
+        if (ops.stream().allMatch(it -> it.error() == null)) {
+            return ops;
+        }
+        List<WriteOperation> converted = new ArrayList<>(ops.size());
+        for (WriteOperation op : ops) {
+            if (op.error() == null) {
+                converted.add(op);
+            } else {
+                reportConversionError(op);
+            }
+        }
+        return converted;
+    }
+
+    private void reportConversionError(WriteOperation op) {
+        errorRecord = op.record();
+        RuntimeException e = op.error();
+        handleDataException(e instanceof DataException ? (DataException) e : new DataException(e));
+        errorRecord = null;
+    }
+
+    /**
+     * Keeps only the last operation for each document key, so that an insert followed by a tombstone results in a
+     * single delete. The kept operations retain their record, used to report errors.
+     */
+    private static List<WriteOperation> compact(List<WriteOperation> ops) {
+        Map<Object, WriteOperation> compacted = new LinkedHashMap<>();
+        for (WriteOperation op : ops) {
+            // operations failing conversion have no key and are never compacted
+            Object key = op.key() != null ? Arrays.asList(op.database(), op.collection(), op.key()) : op;
+            compacted.remove(key);
+            compacted.put(key, op);
+        }
+        if (compacted.size() < ops.size()) {
+            LOG.debug("Compacted {} record(s) into {} operation(s)", ops.size(), compacted.size());
+        }
+        return new ArrayList<>(compacted.values());
+    }
+
+    /**
+     * Merges the successive updates of each document into a single update, placed at the position of the last one. A
+     * delete discards the previous updates of the document, while the following updates are merged after it. Updates
+     * are only merged within the same partition, since the merged update retains the record of the first one to track
+     * the offsets.
+     */
+    private List<WriteOperation> coalesce(List<WriteOperation> ops) {
+        List<WriteOperation> coalesced = new ArrayList<>(ops);
+        // position of the last update of each document, not followed by a delete
+        Map<List<Object>, Integer> updates = new HashMap<>();
+        for (int i = 0; i < coalesced.size(); i++) {
+            WriteOperation op = coalesced.get(i);
+            // operations failing conversion have no key and are never coalesced
+            if (op.key() == null) {
+                continue;
+            }
+            List<Object> key = Arrays.asList(partition(op.record()), op.database(), op.collection(), op.key());
+            Integer previous = Type.DELETE.equals(op.type()) ? updates.remove(key) : updates.put(key, i);
+            if (previous != null) {
+                if (Type.INSERT.equals(op.type())) {
+                    coalesced.set(i, op.coalesce(coalesced.get(previous), mergeObjects));
+                }
+                coalesced.set(previous, null);
+            }
+        }
+        coalesced.removeIf(Objects::isNull);
+        if (coalesced.size() < ops.size()) {
+            LOG.debug("Coalesced {} record(s) into {} operation(s)", ops.size(), coalesced.size());
+        }
+        return coalesced;
+    }
+
+    /**
+     * Groups the operations by target database and collection, preserving their order within each target, so that they
+     * can be written in bulk requests.
+     */
+    private static List<WriteOperation> groupByTarget(List<WriteOperation> ops) {
+        Map<List<String>, List<WriteOperation>> groups = new LinkedHashMap<>();
+        for (WriteOperation op : ops) {
+            groups.computeIfAbsent(op.target(), it -> new ArrayList<>()).add(op);
+        }
+        if (groups.size() == 1) {
+            return ops;
+        }
+        List<WriteOperation> grouped = new ArrayList<>(ops.size());
+        groups.values().forEach(grouped::addAll);
+        return grouped;
+    }
+
+    /**
+     * Handles the operations exceeding {@link #batchMaxBytes} as data errors, without sending them.
+     */
+    private List<WriteOperation> rejectOversized(List<WriteOperation> ops) {
+        List<WriteOperation> accepted = new ArrayList<>(ops.size());
+        for (WriteOperation op : ops) {
+            if (op.size() > batchMaxBytes) {
+                errorRecord = op.record();
+                handleDataException(new DataException("Document size [" + op.size() + "] exceeds " +
+                        ArangoSinkConfig.BATCH_MAX_BYTES + " [" + batchMaxBytes + "]."));
+            } else {
+                accepted.add(op);
+            }
+        }
+        errorRecord = null;
+        return accepted;
+    }
+
+    private List<WriteOperation> extractBatch(List<WriteOperation> ops, int currentOffset) {
+        List<WriteOperation> remainingOps = ops.subList(currentOffset, ops.size());
+        if (remainingOps.isEmpty()) {
+            return remainingOps;
+        }
+        // batches target a single collection
+        List<String> target = remainingOps.get(0).target();
+        List<WriteOperation> targetOps = remainingOps.subList(0, IntStream.range(0, remainingOps.size())
+                .filter(i -> !target.equals(remainingOps.get(i).target()))
+                .findFirst()
+                .orElse(remainingOps.size()));
+        List<WriteOperation> offsetOps = batchMaxBytes > 0
+                ? targetOps.subList(0, maxBytesIndex(targetOps))
+                : targetOps;
+        if (mixedBatchesEnabled) {
+            // the same document can appear only with one type, so that inserts and deletes can be sent concurrently
+            Map<String, Type> types = new HashMap<>();
+            int toIndex = 0;
+            while (toIndex < offsetOps.size() && toIndex < getBatchSize()) {
+                WriteOperation op = offsetOps.get(toIndex);
+                Type prevType = op.key() != null ? types.putIfAbsent(op.key(), op.type()) : null;
+                if (prevType != null && !prevType.equals(op.type())) {
+                    break;
+                }
+                toIndex++;
+            }
+            return offsetOps.subList(0, toIndex);
+        }
+        Type batchType = offsetOps.get(0).type();
+        int toIndex = IntStream.range(0, offsetOps.size())
+                .filter(i -> !batchType.equals(offsetOps.get(i).type()))
                 .findFirst()
-                .orElse(offsetRecords.size());
-        return offsetRecords.subList(0, Math.min(toIndex, batchSize));
+                .orElse(offsetOps.size());
+        return offsetOps.subList(0, Math.min(toIndex, getBatchSize()));
+    }
+
+    /**
+     * @return the number of leading operations fitting in {@link #batchMaxBytes}, at least one
+     */
+    private int maxBytesIndex(List<WriteOperation> ops) {
+        long bytes = 0;
+        int toIndex = 0;
+        while (toIndex < ops.size() && toIndex < getBatchSize()) {
+            bytes += ops.get(toIndex).size();
+            if (toIndex > 0 && bytes > batchMaxBytes) {
+                break;
+            }
+            toIndex++;
+        }
+        return toIndex;
+    }
+
+    private static Set<List<String>> keys(List<WriteOperation> ops) {
+        return ops.stream()
+                .map(it -> Arrays.asList(it.database(), it.collection(), it.key()))
+                .collect(Collectors.toSet());
+    }
+
+    private static List<SinkRecord> records(List<WriteOperation> ops) {
+        return ops.stream()
+                .map(WriteOperation::record)
+                .collect(Collectors.toList());
+    }
+
+    private void handleBatch(List<WriteOperation> batch) {
+        traceBatch(records(batch));
+        List<WriteOperation> current = batch;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                List<?> payload = preparePayload(current);
+                long start = System.nanoTime();
+                List<Object> docsAndErrs = join(send(current, payload));
+                long latency = System.nanoTime() - start;
+                if (attempt < maxDocumentRetries) {
+                    current = handlePartialResult(current, docsAndErrs);
+                } else {
+                    handleResult(current, docsAndErrs);
+                    current = Collections.emptyList();
+                }
+                if (current.isEmpty()) {
+                    if (adaptiveBatchSize != null && attempt == 0) {
+                        adaptiveBatchSize.onSuccess(batch.size(), latency);
+                    }
+                    LOG.trace("Completed handling batch");
+                    return;
+                }
+            } catch (Exception e) {
+                if (isTargetNotFound(current, e)) {
+                    reportTargetNotFound(current, (ArangoDBException) e);
+                    return;
+                }
+                ConnectException ce = wrapException(e);
+                if (!(ce instanceof TransientException) || attempt >= maxDocumentRetries) {
+                    throw ce;
+                }
+                LOG.warn("Got transient exception writing batch: ", e);
+            }
+            backoffDocumentRetry(current.size(), attempt);
+        }
+    }
+
+    /**
+     * Writes the batch and the offsets of its partitions in a stream transaction, which is aborted in case of errors.
+     */
+    private void handleBatchInTransaction(List<WriteOperation> batch, Map<TopicPartition, Long> offsets) {
+        Target target = target(batch.get(0));
+        ArangoDatabase db = target.col.db();
+        String id;
+        try {
+            id = db.beginStreamTransaction(new StreamTransactionOptions()
+                    .writeCollections(target.col.name(), offsetStore.name())).getId();
+        } catch (Exception e) {
+            if (isTargetNotFound(batch, e)) {
+                // the offsets of the reported records are stored with the following batches of their partitions
+                reportTargetNotFound(batch, (ArangoDBException) e);
+                return;
+            }
+            throw wrapException(e);
+        }
+        LOG.trace("Began stream transaction: {}", id);
+        // every batch is written in its own transaction, so the options always carry the id of the current one
+        createOptions.streamTransactionId(id);
+        deleteOptions.streamTransactionId(id);
+        if (silentCreateOptions != null) {
+            silentCreateOptions.streamTransactionId(id);
+            silentDeleteOptions.streamTransactionId(id);
+        }
+        boolean committed = false;
+        try {
+            handleBatch(batch);
+            offsetStore.write(offsets, id);
+            db.commitStreamTransaction(id);
+            committed = true;
+            LOG.trace("Committed stream transaction: {}, offsets: {}", id, offsets);
+        } catch (Exception e) {
+            throw wrapException(e);
+        } finally {
+            if (!committed) {
+                abortTransaction(db, id);
+            }
+        }
+    }
+
+    private static void abortTransaction(ArangoDatabase db, String id) {
+        try {
+            db.abortStreamTransaction(id);
+        } catch (Exception e) {
+            // the transaction is eventually aborted by the server on timeout
+            LOG.warn("Could not abort stream transaction {}: ", id, e);
+        }
+    }
+
+    /**
+     * @param batch      the batch to write
+     * @param next       the operations following the batch, not written yet
+     * @param endOffsets the offsets following the last record of each partition
+     * @return the offsets to consume from after writing the batch, for the partitions of the batch, i.e. the first
+     * offset of the following operations or the end offset if none
+     */
+    private static Map<TopicPartition, Long> nextOffsets(List<WriteOperation> batch, List<WriteOperation> next,
+                                                         Map<TopicPartition, Long> endOffsets) {
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        for (TopicPartition tp : partitions(batch)) {
+            offsets.put(tp, endOffsets.get(tp));
+        }
+        for (WriteOperation op : next) {
+            TopicPartition tp = partition(op.record());
+            if (offsets.containsKey(tp)) {
+                offsets.merge(tp, op.record().originalKafkaOffset(), Math::min);
+            }
+        }
+        return offsets;
+    }
+
+    private static Map<TopicPartition, Long> endOffsets(List<WriteOperation> ops) {
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        for (WriteOperation op : ops) {
+            offsets.merge(partition(op.record()), op.record().originalKafkaOffset() + 1, Math::max);
+        }
+        return offsets;
+    }
+
+    /**
+     * Handles the results of the batch, except for the operations failed with transient errors and the following
+     * operations on the same documents, which are retried preserving their order.
+     *
+     * @return the operations to retry
+     */
+    private List<WriteOperation> handlePartialResult(List<WriteOperation> batch, List<Object> docsAndErrs) {
+        checkResultSize(records(batch), docsAndErrs);
+        Set<String> failedKeys = new HashSet<>();
+        List<WriteOperation> retry = new ArrayList<>();
+        List<WriteOperation> done = new ArrayList<>();
+        List<Object> doneDocsAndErrs = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            WriteOperation op = batch.get(i);
+            Object res = docsAndErrs.get(i);
+            ArangoDBException e = asError(res);
+            boolean failed = e != null && !isDataError(res, e) && !isDeleteNotFound(op, e);
+            if (failed || failedKeys.contains(op.key())) {
+                retry.add(op);
+                failedKeys.add(op.key());
+            } else {
+                done.add(op);
+                doneDocsAndErrs.add(res);
+            }
+        }
+        handleResult(done, doneDocsAndErrs);
+        return retry;
+    }
+
+    private void backoffDocumentRetry(int docs, int attempt) {
+        LOG.info("Retrying {} document(s), remaining document retries: {}", docs, maxDocumentRetries - attempt);
+        if (adaptiveBatchSize != null) {
+            adaptiveBatchSize.onTransientError();
+        }
+        try {
+            Thread.sleep(documentRetryBackoffMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectException(e);
+        }
     }
 
-    private Type getType(SinkRecord record) {
-        if (record.key() != null && record.value() == null) {
-            return Type.DELETE;
+    /**
+     * Enforces the rate limits before writing the given batch. If exceeded, the partitions of the operations not
+     * written yet are rewound and paused until the limits allow writing again, so that the task thread is not blocked.
+     *
+     * @return {@code true} if the batch cannot be written
+     */
+    private boolean throttle(List<WriteOperation> unwritten, List<WriteOperation> batch) {
+        if (rateLimiter == null) {
+            return false;
+        }
+        long waitMs = rateLimiter.acquire(batch, System.currentTimeMillis());
+        if (waitMs <= 0) {
+            return false;
+        }
+        LOG.debug("Rate limit exceeded, pausing for {} ms", waitMs);
+        pauseUnwritten(unwritten, waitMs);
+        return true;
+    }
+
+    /**
+     * Slows down the writes if the server is saturated, i.e. the average queue time reported in the recent responses
+     * exceeds {@link #backpressureQueueTimeMs}, reducing the batch size and waiting for the queue to drain. The waits
+     * of a put are limited to {@link #backpressureMaxDelayMs} in total, beyond which the partitions of the operations
+     * not written yet are rewound and paused for the queue time, so that the task thread is not blocked.
+     *
+     * @return {@code true} if the next batch cannot be written
+     */
+    private boolean backpressure(List<WriteOperation> unwritten) {
+        if (arangoMetrics == null) {
+            return false;
+        }
+        long queueTimeMs = (long) (arangoMetrics.getQueueTime().getAvg() * 1000);
+        if (queueTimeMs <= backpressureQueueTimeMs) {
+            return false;
+        }
+        LOG.debug("Server queue time {} ms exceeds {} ms, slowing down", queueTimeMs, backpressureQueueTimeMs);
+        if (adaptiveBatchSize != null) {
+            adaptiveBatchSize.onTransientError();
+        }
+        long delayMs = Math.min(queueTimeMs, backpressureMaxDelayMs - backpressureDelayMs);
+        if (delayMs <= 0) {
+            LOG.debug("Backpressure delay exceeds {} ms, pausing for {} ms", backpressureMaxDelayMs, queueTimeMs);
+            pauseUnwritten(unwritten, queueTimeMs);
+            return true;
+        }
+        backpressureDelayMs += delayMs;
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectException(e);
+        }
+        return false;
+    }
+
+    /**
+     * Rewinds and pauses the partitions of the given operations for the given time, or just waits for it if there are
+     * no such partitions, e.g. if the operations are all retained accumulators.
+     */
+    private void pauseUnwritten(List<WriteOperation> unwritten, long waitMs) {
+        Map<TopicPartition, Long> offsets = minOffsets(records(retainAggregates(unwritten)));
+        if (!offsets.isEmpty()) {
+            rewind(offsets, waitMs);
         } else {
-            return Type.INSERT;
+            context.timeout(waitMs);
+        }
+    }
+
+    private void submitBatch(List<WriteOperation> batch) {
+        traceBatch(records(batch));
+        List<?> payload;
+        try {
+            payload = preparePayload(batch);
+        } catch (Exception e) {
+            throw wrapException(e);
+        }
+        Set<List<String>> keys = keys(batch);
+
+        // preserve the order of writes to the same document
+        while (pending.stream().anyMatch(it -> !Collections.disjoint(it.keys, keys))) {
+            completeHead();
+        }
+        while (pending.size() >= maxInFlight) {
+            completeHead();
+        }
+
+        CompletableFuture<List<Object>> future;
+        try {
+            future = send(batch, payload);
+        } catch (Exception e) {
+            throw wrapException(e);
         }
+        pending.add(new PendingBatch(batch, keys, future, 0));
+        LOG.trace("Submitted batch, in-flight batches: {}", pending.size());
     }
 
-    private void handleBatch(List<SinkRecord> batch) {
+    private void completeDone() {
+        while (!pending.isEmpty() && pending.peek().future.isDone()) {
+            completeHead();
+        }
+    }
+
+    /**
+     * Waits for the completion of the oldest in-flight batch and handles its result. In case of transient errors, the
+     * batch is left in the queue.
+     */
+    private void completeHead() {
+        PendingBatch head = pending.element();
+        errorRecord = null;
+        List<WriteOperation> retry = Collections.emptyList();
+        try {
+            List<Object> docsAndErrs = join(head.future);
+            if (head.attempt < maxDocumentRetries) {
+                retry = handlePartialResult(head.ops, docsAndErrs);
+            } else {
+                handleResult(head.ops, docsAndErrs);
+            }
+            if (adaptiveBatchSize != null && retry.isEmpty() && head.attempt == 0) {
+                adaptiveBatchSize.onSuccess(head.ops.size(), head.latency());
+            }
+            LOG.trace("Completed handling batch");
+        } catch (Exception e) {
+            if (isTargetNotFound(head.ops, e)) {
+                reportTargetNotFound(head.ops, (ArangoDBException) e);
+            } else {
+                ConnectException ce = wrapException(e);
+                if (ce instanceof TransientException && head.attempt < maxDocumentRetries) {
+                    LOG.warn("Got transient exception writing batch: ", e);
+                    retry = head.ops;
+                } else if (ce instanceof DataException) {
+                    handleDataException((DataException) ce);
+                } else {
+                    throw ce;
+                }
+            }
+        }
+        pending.remove();
+        if (!retry.isEmpty()) {
+            backoffDocumentRetry(retry.size(), head.attempt);
+            CompletableFuture<List<Object>> future;
+            try {
+                future = send(retry, preparePayload(retry));
+            } catch (Exception e) {
+                future = failedFuture(e);
+            }
+            // the retried operations precede the other in-flight batches
+            pending.addFirst(new PendingBatch(retry, keys(retry), future, head.attempt + 1));
+            return;
+        }
+        partitions(head.ops).forEach(partitionFailures::remove);
+        if (circuitBreaker != null) {
+            circuitBreaker.onSuccess();
+        }
+    }
+
+    /**
+     * Handles transient exceptions rewinding the partitions of the records that have not been written, instead of
+     * throwing {@link RetriableException}, which would redeliver the records of the current put for all the partitions.
+     * Retries are counted per partition, so that the failures of a partition are not reset by the successful writes of
+     * the other ones.
+     */
+    private void handleTransientExceptionWithRewind(TransientException e, List<WriteOperation> unsent) {
+        LOG.warn("Got transient exception: ", e);
+        if (adaptiveBatchSize != null) {
+            adaptiveBatchSize.onTransientError();
+        }
+        if (errorRecord != null) {
+            LOG.debug("Got transient exception while processing record: {}", errorRecord, e);
+        }
+
+        List<WriteOperation> unacked = new ArrayList<>();
+        while (!pending.isEmpty()) {
+            try {
+                completeHead();
+            } catch (TransientException ex) {
+                LOG.debug("Discarding failed in-flight batch: ", ex);
+                unacked.addAll(pending.remove().ops);
+            }
+        }
+        unacked.addAll(unsent);
+
+        Set<TopicPartition> failed = partitions(unacked);
+        Map<TopicPartition, Long> offsets = minOffsets(records(retainAggregates(unacked)));
+        if (openCircuitBreaker()) {
+            if (!offsets.isEmpty()) {
+                rewind(offsets, circuitBreaker.remainingOpenMs(System.currentTimeMillis()));
+            }
+            return;
+        }
+        if (failed.isEmpty()) {
+            return;
+        }
+        int attempt = 0;
+        for (TopicPartition tp : failed) {
+            int failures = partitionFailures.merge(tp, 1, Integer::sum);
+            if (failures > maxRetries) {
+                partitionFailures.clear();
+                throw e;
+            }
+            LOG.info("remaining retries for partition {}: {}", tp, maxRetries - failures);
+            attempt = Math.max(attempt, failures - 1);
+        }
+        long backoff = retryBackoff.next(attempt);
+        if (backoff < 0) {
+            LOG.warn("Retry budget exhausted.");
+            partitionFailures.clear();
+            throw e;
+        }
+        if (!offsets.isEmpty()) {
+            rewind(offsets, backoff);
+        } else {
+            // only retained accumulators failed, they are retried by the next flush
+            context.timeout(backoff);
+        }
+    }
+
+    /**
+     * Rewinds the given partitions, so that their records starting from the given offsets will be consumed again, and
+     * pauses them for the given backoff. The other partitions are not affected.
+     */
+    private void rewind(Map<TopicPartition, Long> offsets, long backoffMs) {
+        // the aggregated records of the rewound partitions, never written, will be consumed and aggregated again, while
+        // the retained accumulators precede them and are kept
+        aggregates.values().removeIf(it -> {
+            TopicPartition tp = partition(it.record());
+            if (!offsets.containsKey(tp)) {
+                return false;
+            }
+            offsets.merge(tp, it.record().originalKafkaOffset(), Math::min);
+            return true;
+        });
+        LOG.info("Rewinding partitions to offsets: {}", offsets);
+        context.offset(offsets);
+        offsets.forEach((tp, offset) -> rewound.merge(tp, offset, Math::min));
+
+        long resumeAt = System.currentTimeMillis() + backoffMs;
+        offsets.keySet().forEach(tp -> paused.put(tp, resumeAt));
+        context.pause(offsets.keySet().toArray(new TopicPartition[0]));
+        context.timeout(backoffMs);
+    }
+
+    /**
+     * Counts a transient failure in the circuit breaker, if enabled. If the breaker opens, all the assigned partitions
+     * are paused and the retries are reset, so that they are not exhausted while the database is unavailable.
+     *
+     * @return {@code true} if the circuit breaker has been opened
+     */
+    private boolean openCircuitBreaker() {
+        long now = System.currentTimeMillis();
+        if (circuitBreaker == null || !circuitBreaker.onFailure(now)) {
+            return false;
+        }
+        Set<TopicPartition> assignment = context.assignment();
+        LOG.warn("Opening circuit breaker, pausing partitions: {}", assignment);
+        breakerPaused.addAll(assignment);
+        context.pause(assignment.toArray(new TopicPartition[0]));
+        context.timeout(circuitBreaker.remainingOpenMs(now));
+        failingBatch = null;
+        batchFailures = 0;
+        partitionFailures.clear();
+        return true;
+    }
+
+    /**
+     * Probes the database with a version request if the circuit breaker is half-open, closing it and resuming the
+     * paused partitions in case of success.
+     *
+     * @return {@code true} if the circuit breaker is closed
+     */
+    private boolean checkCircuitBreaker() {
+        long now = System.currentTimeMillis();
+        switch (circuitBreaker.state(now)) {
+            case CLOSED:
+                // closed by the probe of another lane
+                resumeBreakerPaused();
+                return true;
+            case OPEN:
+                context.timeout(circuitBreaker.remainingOpenMs(now));
+                return false;
+            default:
+                if (!circuitBreaker.tryProbe(now)) {
+                    // probed by another lane, whose result is available at the next put
+                    return false;
+                }
+                try {
+                    col.db().getVersion();
+                } catch (Exception e) {
+                    LOG.warn("Circuit breaker probe failed: ", e);
+                    circuitBreaker.onProbeFailure(now);
+                    context.timeout(circuitBreaker.remainingOpenMs(now));
+                    return false;
+                }
+                LOG.info("Closing circuit breaker");
+                circuitBreaker.onSuccess();
+                resumeBreakerPaused();
+                return true;
+        }
+    }
+
+    private void resumeBreakerPaused() {
+        if (breakerPaused.isEmpty()) {
+            return;
+        }
+        // partitions rewound are resumed when their backoff is expired
+        breakerPaused.removeAll(paused.keySet());
+        LOG.info("Resuming partitions paused by the circuit breaker: {}", breakerPaused);
+        context.resume(breakerPaused.toArray(new TopicPartition[0]));
+        breakerPaused.clear();
+    }
+
+    /**
+     * Resumes the paused partitions whose backoff is expired.
+     */
+    private void resumePaused() {
+        if (paused.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<TopicPartition> expired = paused.entrySet().stream()
+                .filter(it -> now >= it.getValue())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        if (!expired.isEmpty()) {
+            LOG.info("Resuming partitions: {}", expired);
+            context.resume(expired.toArray(new TopicPartition[0]));
+            expired.forEach(paused::remove);
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static Map<TopicPartition, Long> minOffsets(List<SinkRecord> records) {
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        for (SinkRecord r : records) {
+            offsets.merge(partition(r), r.originalKafkaOffset(), Math::min);
+        }
+        return offsets;
+    }
+
+    private static Set<TopicPartition> partitions(List<WriteOperation> ops) {
+        return ops.stream()
+                .map(it -> partition(it.record()))
+                .collect(Collectors.toSet());
+    }
+
+    private static TopicPartition partition(SinkRecord record) {
+        return new TopicPartition(record.originalTopic(), record.originalKafkaPartition());
+    }
+
+    private void traceBatch(List<SinkRecord> batch) {
         if (LOG.isTraceEnabled()) {
             String records = batch.stream()
                     .map(it -> String.format("%s-%s-%s", it.topic(), it.kafkaPartition(), it.kafkaOffset()))
                     .collect(Collectors.joining("\n\t", "\n\t", "\n"));
             LOG.trace("Handling batch of {} records: {}", batch.size(), records);
         }
+    }
 
-        try {
-            switch (getType(batch.get(0))) {
-                case DELETE:
-                    handleBatchDelete(batch);
-                    break;
-                case INSERT:
-                    handleBatchInsert(batch);
-                    break;
-                default:
-                    throw new IllegalStateException();
+    private List<?> preparePayload(List<WriteOperation> batch) {
+        List<String> insertKeys = new ArrayList<>();
+        List<String> deleteKeys = new ArrayList<>();
+        for (WriteOperation op : batch) {
+            (Type.DELETE.equals(op.type()) ? deleteKeys : insertKeys).add(op.key());
+        }
+        if (!deleteKeys.isEmpty() && !deleteEnabled) {
+            throw new ConnectException("Deletes are not enabled.");
+        }
+        List<Object> payload = batch.stream()
+                .map(WriteOperation::payload)
+                .collect(Collectors.toList());
+        if (!insertKeys.isEmpty()) {
+            LOG.trace("Inserting documents: {}", insertKeys);
+        }
+        if (!deleteKeys.isEmpty()) {
+            LOG.trace("Deleting documents: {}", deleteKeys);
+        }
+        return payload;
+    }
+
+    /**
+     * Sends the inserts and the deletes of the batch, concurrently if the batch contains both.
+     *
+     * @return the results of the operations, in the same order as the batch
+     */
+    private CompletableFuture<List<Object>> send(List<WriteOperation> batch, List<?> payload) {
+        Target target = target(batch.get(0));
+        List<Object> inserts = new ArrayList<>();
+        List<Object> deletes = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            (Type.DELETE.equals(batch.get(i).type()) ? deletes : inserts).add(payload.get(i));
+        }
+        if (deletes.isEmpty()) {
+            return sendInserts(target, inserts);
+        }
+        if (inserts.isEmpty()) {
+            return sendDeletes(target, deletes);
+        }
+        LOG.trace("Sending mixed batch of {} insert(s) and {} delete(s)", inserts.size(), deletes.size());
+        return sendInserts(target, inserts).thenCombine(sendDeletes(target, deletes), (insertsRes, deletesRes) -> {
+            if (insertsRes.size() != inserts.size() || deletesRes.size() != deletes.size()) {
+                throw new ConnectException("Response length [" + (insertsRes.size() + deletesRes.size()) + "] " +
+                        "does not match batch length [" + batch.size() + "].");
             }
-            LOG.trace("Completed handling batch");
-        } catch (Exception e) {
-            throw wrapException(e);
+            Iterator<Object> insertsIt = insertsRes.iterator();
+            Iterator<Object> deletesIt = deletesRes.iterator();
+            return batch.stream()
+                    .map(it -> Type.DELETE.equals(it.type()) ? deletesIt.next() : insertsIt.next())
+                    .collect(Collectors.toList());
+        });
+    }
+
+    /**
+     * @return the handles of the target collection of the operation, created from the shared client on first use
+     */
+    private Target target(WriteOperation op) {
+        return targets.computeIfAbsent(op.target(), it -> {
+            String database = op.database();
+            String collection = op.collection() != null ? op.collection() : col.name();
+            LOG.info("Writing to collection: {}/{}", database != null ? database : col.db().name(), collection);
+            ArangoDatabase db = database != null ? col.db().arango().db(database) : col.db();
+            ArangoCollectionAsync targetAsync = null;
+            if (colAsync != null) {
+                ArangoDatabaseAsync dbAsync = database != null ? colAsync.db().arango().db(database) : colAsync.db();
+                targetAsync = dbAsync.collection(collection);
+            }
+            return new Target(db.collection(collection), targetAsync);
+        });
+    }
+
+    private CompletableFuture<List<Object>> sendInserts(Target target, List<?> docs) {
+        if (upsertQuery != null) {
+            return sendUpserts(target, docs);
+        }
+        if (importOptions != null) {
+            return sendImport(target, docs);
         }
+        if (silentCreateOptions != null) {
+            return silently(docs, insertDocuments(target, docs, silentCreateOptions),
+                    () -> insertDocuments(target, docs, createOptions));
+        }
+        return insertDocuments(target, docs, createOptions).thenApply(MultiDocumentEntity::getDocumentsAndErrors);
     }
 
-    private void handleBatchDelete(List<SinkRecord> batch) {
-        if (!deleteEnabled) {
-            throw new ConnectException("Deletes are not enabled.");
+    private static CompletableFuture<MultiDocumentEntity<DocumentCreateEntity<Void>>> insertDocuments(
+            Target target, List<?> docs, DocumentCreateOptions options) {
+        if (target.colAsync != null) {
+            return target.colAsync.insertDocuments(docs, options);
         }
+        return CompletableFuture.completedFuture(target.col.insertDocuments(docs, options));
+    }
 
-        List<String> keys = batch.stream()
-                .map(keyConverter::convert)
-                .collect(Collectors.toList());
+    /**
+     * Handles the result of a silent write, which only holds the errors. Since they cannot be attributed to the
+     * documents, in case of errors the documents are written again in non-silent mode.
+     *
+     * @return the results of the documents, holding the errors if the documents were written again
+     */
+    private static <T> CompletableFuture<List<Object>> silently(List<?> docs, CompletableFuture<MultiDocumentEntity<T>> silent,
+                                                                Supplier<CompletableFuture<MultiDocumentEntity<T>>> replay) {
+        return silent.thenCompose(res -> {
+            if (res.getErrors() == null || res.getErrors().isEmpty()) {
+                // successful results carry no information
+                return CompletableFuture.completedFuture(new ArrayList<Object>(docs));
+            }
+            LOG.debug("Got {} error(s) writing {} document(s) silently, writing them again to attribute the errors",
+                    res.getErrors().size(), docs.size());
+            return replay.get().thenApply(MultiDocumentEntity::getDocumentsAndErrors);
+        });
+    }
+
+    private CompletableFuture<List<Object>> sendImport(Target target, List<?> docs) {
+        if (target.colAsync != null) {
+            return target.colAsync.importDocuments(docs, importOptions).thenApply(it -> importResults(docs, it));
+        }
+        return CompletableFuture.completedFuture(importResults(docs, target.col.importDocuments(docs, importOptions)));
+    }
+
+    /**
+     * Maps the import summary to the results of the single documents, attributing the errors to the documents at the
+     * positions reported in the details.
+     */
+    private static List<Object> importResults(List<?> docs, DocumentImportEntity res) {
+        List<Object> results = new ArrayList<>(docs);
+        Collection<String> details = res.getDetails() != null ? res.getDetails() : Collections.emptyList();
+        int attributed = 0;
+        for (String detail : details) {
+            Matcher matcher = IMPORT_ERROR_POSITION.matcher(detail);
+            if (!matcher.find()) {
+                continue;
+            }
+            int position = Integer.parseInt(matcher.group(1));
+            if (position >= results.size()) {
+                throw new ConnectException("Import error position [" + position + "] " +
+                        "exceeds batch length [" + results.size() + "].");
+            }
+            results.set(position, new ImportError(detail));
+            attributed++;
+        }
+        int errors = res.getErrors() != null ? res.getErrors() : 0;
+        if (attributed != errors) {
+            throw new ConnectException("Could not attribute import errors [" + errors + "] to documents: " + details);
+        }
+        LOG.trace("Imported documents: created [{}], updated [{}], ignored [{}], errors [{}]",
+                res.getCreated(), res.getUpdated(), res.getIgnored(), errors);
+        return results;
+    }
+
+    /**
+     * Writes the documents with {@link #upsertQuery}. Since the query fails as a whole, in case of data errors the
+     * documents are written again in two halves recursively, to detect the documents causing the errors.
+     *
+     * @return the results of the documents, holding an {@link ArangoDBException} for the failed ones
+     */
+    private CompletableFuture<List<Object>> sendUpserts(Target target, List<?> docs) {
+        return upsertQuery(target, docs).handle((v, ex) -> {
+            if (ex == null) {
+                // successful results carry no information
+                return CompletableFuture.completedFuture((List<Object>) new ArrayList<Object>(docs));
+            }
+            Throwable e = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (!(e instanceof ArangoDBException) || !isDataError(((ArangoDBException) e).getErrorNum())) {
+                return ArangoWriter.<List<Object>>failedFuture(e);
+            }
+            if (docs.size() == 1) {
+                return CompletableFuture.completedFuture(Collections.<Object>singletonList(e));
+            }
+            LOG.debug("Got data error in batch of {} documents, splitting it: {}", docs.size(), e.getMessage());
+            int mid = docs.size() / 2;
+            return sendUpserts(target, docs.subList(0, mid)).thenCompose(first ->
+                    sendUpserts(target, docs.subList(mid, docs.size())).thenApply(second -> {
+                        List<Object> res = new ArrayList<>(first);
+                        res.addAll(second);
+                        return res;
+                    }));
+        }).thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<Void> upsertQuery(Target target, List<?> docs) {
+        Map<String, Object> bindVars = new HashMap<>();
+        bindVars.put("docs", docs);
+        bindVars.put("@collection", target.col.name());
+        if (target.colAsync != null) {
+            return target.colAsync.db().query(upsertQuery, Void.class, bindVars, queryOptions).thenApply(it -> null);
+        }
+        try {
+            target.col.db().query(upsertQuery, Void.class, bindVars, queryOptions);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return failedFuture(e);
+        }
+    }
 
-        LOG.trace("Deleting documents: {}", keys);
+    private static <T> CompletableFuture<T> failedFuture(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
 
-        List<Object> docsAndErrs = col.deleteDocuments(keys, deleteOptions).getDocumentsAndErrors();
-        checkResultSize(batch, docsAndErrs);
+    private CompletableFuture<List<Object>> sendDeletes(Target target, List<?> keys) {
+        if (silentDeleteOptions != null) {
+            return silently(keys, deleteDocuments(target, keys, silentDeleteOptions),
+                    () -> deleteDocuments(target, keys, deleteOptions));
+        }
+        return deleteDocuments(target, keys, deleteOptions).thenApply(MultiDocumentEntity::getDocumentsAndErrors);
+    }
 
-        List<SinkRecord> batchWithoutNotFound = new ArrayList<>();
+    private static CompletableFuture<MultiDocumentEntity<DocumentDeleteEntity<Void>>> deleteDocuments(
+            Target target, List<?> keys, DocumentDeleteOptions options) {
+        if (target.colAsync != null) {
+            return target.colAsync.deleteDocuments(keys, options);
+        }
+        return CompletableFuture.completedFuture(target.col.deleteDocuments(keys, options));
+    }
+
+    private void handleResult(List<WriteOperation> batch, List<Object> docsAndErrs) {
+        List<SinkRecord> records = records(batch);
+        checkResultSize(records, docsAndErrs);
+
+        List<WriteOperation> opsWithoutNotFound = new ArrayList<>();
         List<Object> docsAndErrsWithoutNotFound = new ArrayList<>();
 
-        // remove docs not found, allow idempotent deletes
+        // remove deleted docs not found, allow idempotent deletes
         for (int i = 0; i < docsAndErrs.size(); i++) {
             Object res = docsAndErrs.get(i);
-            if (res instanceof ErrorEntity) {
-                ErrorEntity e = (ErrorEntity) res;
-                if (e.getErrorNum() == 1202) {
-                    // Error: 1202 - document not found
-                    LOG.debug("Deleting document not found: {}", keys.get(i));
-                } else {
-                    batchWithoutNotFound.add(batch.get(i));
-                    docsAndErrsWithoutNotFound.add(docsAndErrs.get(i));
-                }
+            if (isDeleteNotFound(batch.get(i), asError(res))) {
+                // Error: 1202 - document not found
+                LOG.debug("Deleting document not found: {}", batch.get(i).key());
             } else {
-                batchWithoutNotFound.add(batch.get(i));
-                docsAndErrsWithoutNotFound.add(docsAndErrs.get(i));
+                opsWithoutNotFound.add(batch.get(i));
+                docsAndErrsWithoutNotFound.add(res);
             }
         }
 
-        checkTransientErrors(batchWithoutNotFound, docsAndErrsWithoutNotFound);
-        checkDataErrors(batchWithoutNotFound, docsAndErrsWithoutNotFound);
+        checkTransientErrors(opsWithoutNotFound, docsAndErrsWithoutNotFound);
+        checkDataErrors(opsWithoutNotFound, docsAndErrsWithoutNotFound);
     }
 
-    private void handleBatchInsert(List<SinkRecord> batch) {
-        List<ObjectNode> docs = batch.stream()
-                .map(converter::convert)
-                .collect(Collectors.toList());
+    /**
+     * @return whether the batch failed because its target collection or database does not exist, and the target has
+     * been read from its records: in this case the records are invalid, while a missing configured target is handled
+     * as a transient error, waiting for the collection to be created
+     */
+    private static boolean isTargetNotFound(List<WriteOperation> batch, Exception e) {
+        return e instanceof ArangoDBException
+                && TARGET_NOT_FOUND_NUMS.contains(((ArangoDBException) e).getErrorNum())
+                && batch.stream().allMatch(WriteOperation::isRouted);
+    }
 
-        if (LOG.isTraceEnabled()) {
-            List<JsonNode> keys = docs.stream()
-                    .map(it -> it.get("_key"))
-                    .collect(Collectors.toList());
-            LOG.trace("Inserting documents: {}", keys);
+    private void reportTargetNotFound(List<WriteOperation> batch, ArangoDBException e) {
+        for (WriteOperation op : batch) {
+            for (SinkRecord record : op.sources()) {
+                errorRecord = record;
+                handleDataException(new DataException(e));
+            }
         }
+        errorRecord = null;
+    }
 
-        List<Object> docsAndErrs = col.insertDocuments(docs, createOptions).getDocumentsAndErrors();
-        checkResultSize(batch, docsAndErrs);
-        checkTransientErrors(batch, docsAndErrs);
-        checkDataErrors(batch, docsAndErrs);
+    private static boolean isDeleteNotFound(WriteOperation op, ArangoDBException e) {
+        return Type.DELETE.equals(op.type()) && e != null && Integer.valueOf(1202).equals(e.getErrorNum());
     }
 
-    private void checkTransientErrors(List<SinkRecord> batch, List<Object> docsAndErrs) {
+    private void checkTransientErrors(List<WriteOperation> batch, List<Object> docsAndErrs) {
         for (int i = 0; i < docsAndErrs.size(); i++) {
             Object res = docsAndErrs.get(i);
-            if (res instanceof ErrorEntity) {
-                ErrorEntity e = (ErrorEntity) res;
-                if (!isDataError(e.getErrorNum())) {
-                    errorRecord = batch.get(i);
-                    throw new TransientException(new ArangoDBException(e));
-                }
+            ArangoDBException e = asError(res);
+            if (e != null && !isDataError(res, e)) {
+                errorRecord = batch.get(i).record();
+                throw new TransientException(e);
             }
         }
     }
 
-    private void checkDataErrors(List<SinkRecord> batch, List<Object> docsAndErrs) {
+    private void checkDataErrors(List<WriteOperation> batch, List<Object> docsAndErrs) {
         for (int i = 0; i < docsAndErrs.size(); i++) {
             Object res = docsAndErrs.get(i);
-            if (res instanceof ErrorEntity) {
-                ErrorEntity e = (ErrorEntity) res;
-                if (isDataError(e.getErrorNum())) {
-                    errorRecord = batch.get(i);
-                    handleDataException(new DataException(new ArangoDBException(e)));
+            ArangoDBException e = asError(res);
+            if (e != null && isDataError(res, e)) {
+                // coalesced operations fail for all the merged records
+                for (SinkRecord record : batch.get(i).sources()) {
+                    errorRecord = record;
+                    handleDataException(new DataException(e));
                 }
             }
         }
     }
 
+    /**
+     * @return the error of a single document result, which can be either an {@link ErrorEntity} returned by the
+     * document API, an {@link ArangoDBException} of a failed query or an {@link ImportError}, or {@code null} if the
+     * document was written
+     */
+    private static ArangoDBException asError(Object res) {
+        if (res instanceof ErrorEntity) {
+            return new ArangoDBException((ErrorEntity) res);
+        }
+        if (res instanceof ArangoDBException) {
+            return (ArangoDBException) res;
+        }
+        if (res instanceof ImportError) {
+            return new ArangoDBException(((ImportError) res).detail);
+        }
+        return null;
+    }
+
+    private boolean isDataError(Object res, ArangoDBException e) {
+        // import errors are only reported for specific documents, without error number
+        return res instanceof ImportError || isDataError(e.getErrorNum());
+    }
+
     private void checkResultSize(List<SinkRecord> batch, List<Object> docsAndErrs) {
         if (batch.size() != docsAndErrs.size()) {
             throw new ConnectException("Response length [" + docsAndErrs.size() + "] " +
@@ -324,20 +1714,100 @@ public class ArangoWriter {
         }
     }
 
-    private void handleTransientException(TransientException e) {
+    private void handleTransientException(TransientException e, List<WriteOperation> batch) {
         LOG.warn("Got transient exception: ", e);
+        if (adaptiveBatchSize != null) {
+            adaptiveBatchSize.onTransientError();
+        }
         if (errorRecord != null) {
             LOG.debug("Got transient exception while processing record: {}", errorRecord, e);
         }
-        if (remainingRetries > 0) {
-            LOG.info("remaining retries: {}", remainingRetries);
-            remainingRetries--;
-            context.timeout(retryBackoffMs);
+        if (openCircuitBreaker()) {
+            throw new RetriableException(e);
+        }
+        // the failures are counted per failing batch, so that the other batches of the redelivered records being
+        // written successfully do not restart the retries
+        List<Object> key = batchKey(batch);
+        batchFailures = key.equals(failingBatch) ? batchFailures + 1 : 1;
+        failingBatch = key;
+        long backoff = batchFailures <= maxRetries ? retryBackoff.next(batchFailures - 1) : -1;
+        if (backoff >= 0) {
+            LOG.info("remaining retries: {}", maxRetries - batchFailures);
+            context.timeout(backoff);
             throw new RetriableException(e);
         } else {
-            remainingRetries = maxRetries;
+            if (batchFailures <= maxRetries) {
+                LOG.warn("Retry budget exhausted.");
+            }
+            failingBatch = null;
+            batchFailures = 0;
             throw e;
         }
     }
 
+    /**
+     * Restarts the retries of the failing batch, once its records have been written.
+     */
+    private void resetBatchFailures(List<WriteOperation> batch) {
+        if (failingBatch != null && batch.stream()
+                .map(it -> recordKey(it.record()))
+                .anyMatch(failingBatch::equals)) {
+            failingBatch = null;
+            batchFailures = 0;
+        }
+    }
+
+    private static List<Object> batchKey(List<WriteOperation> batch) {
+        return recordKey(batch.get(0).record());
+    }
+
+    private static List<Object> recordKey(SinkRecord record) {
+        return Arrays.asList(partition(record), record.originalKafkaOffset());
+    }
+
+    /**
+     * Handles of a target collection, sharing the client of the default collection.
+     */
+    private static class Target {
+        private final ArangoCollection col;
+        private final ArangoCollectionAsync colAsync;
+
+        Target(ArangoCollection col, ArangoCollectionAsync colAsync) {
+            this.col = col;
+            this.colAsync = colAsync;
+        }
+    }
+
+    private static class ImportError {
+        private final String detail;
+
+        ImportError(String detail) {
+            this.detail = detail;
+        }
+    }
+
+    private static class PendingBatch {
+        private final List<WriteOperation> ops;
+        private final Set<List<String>> keys;
+        private final Map<TopicPartition, Long> minOffsets;
+        private final CompletableFuture<List<Object>> future;
+        private final int attempt;
+        private final long startNanos;
+        private volatile long endNanos;
+
+        PendingBatch(List<WriteOperation> ops, Set<List<String>> keys, CompletableFuture<List<Object>> future, int attempt) {
+            this.ops = new ArrayList<>(ops);
+            this.keys = keys;
+            this.minOffsets = minOffsets(records(ops));
+            this.future = future;
+            this.attempt = attempt;
+            startNanos = System.nanoTime();
+            future.whenComplete((r, e) -> endNanos = System.nanoTime());
+        }
+
+        long latency() {
+            return endNanos - startNanos;
+        }
+    }
+
 }
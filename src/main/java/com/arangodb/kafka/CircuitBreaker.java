@@ -0,0 +1,112 @@
+/*
+ * Copyright 2023 ArangoDB GmbH, Cologne, Germany
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Copyright holder is ArangoDB GmbH, Cologne, Germany
+ */
+
+
+package com.arangodb.kafka;
+
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import net.jcip.annotations.GuardedBy;
+
+/**
+ * Circuit breaker of the writes. It opens after a number of consecutive transient failures and stays open for a given
+ * time, after which it is half-open: a probe request is allowed, closing the breaker if it succeeds or opening it again
+ * otherwise. It can be shared by the writer lanes of a task, in which case a single lane sends the probe request.
+ */
+class CircuitBreaker {
+    enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final int failureThreshold;
+    private final long openMs;
+    private volatile State state;
+    @GuardedBy("this")
+    private int failures;
+    @GuardedBy("this")
+    private long openUntil;
+    @GuardedBy("this")
+    private boolean probing;
+
+    CircuitBreaker(ArangoSinkConfig config) {
+        this(config.getCircuitBreakerFailureThreshold(), config.getCircuitBreakerOpenMs());
+    }
+
+    CircuitBreaker(int failureThreshold, long openMs) {
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+        state = State.CLOSED;
+    }
+
+    synchronized State state(long now) {
+        if (State.OPEN.equals(state) && now >= openUntil) {
+            state = State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * @return the current state, without transitions
+     */
+    State state() {
+        return state;
+    }
+
+    synchronized long remainingOpenMs(long now) {
+        return Math.max(0, openUntil - now);
+    }
+
+    /**
+     * @return {@code true} if the breaker has been opened
+     */
+    synchronized boolean onFailure(long now) {
+        if (!State.CLOSED.equals(state)) {
+            return false;
+        }
+        if (++failures >= failureThreshold) {
+            open(now);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code true} if the breaker is half-open and the caller is allowed to send the probe request
+     */
+    synchronized boolean tryProbe(long now) {
+        if (!State.HALF_OPEN.equals(state(now)) || probing) {
+            return false;
+        }
+        probing = true;
+        return true;
+    }
+
+    synchronized void onProbeFailure(long now) {
+        open(now);
+    }
+
+    synchronized void onSuccess() {
+        failures = 0;
+        probing = false;
+        state = State.CLOSED;
+    }
+
+    private void open(long now) {
+        failures = 0;
+        probing = false;
+        openUntil = now + openMs;
+        state = State.OPEN;
+    }
+}
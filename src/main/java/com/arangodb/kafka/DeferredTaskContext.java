@@ -0,0 +1,223 @@
+/*
+ * Copyright 2023 ArangoDB GmbH, Cologne, Germany
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Copyright holder is ArangoDB GmbH, Cologne, Germany
+ */
+
+package com.arangodb.kafka;
+
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.metrics.PluginMetrics;
+import org.apache.kafka.connect.sink.ErrantRecordReporter;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import net.jcip.annotations.GuardedBy;
+
+/**
+ * Context shared by multiple writer lanes. Since the underlying consumer is not thread-safe, the operations requested
+ * through the {@link SinkTaskContext} of each lane are recorded and then applied on the task thread by
+ * {@link #apply()}, while the assignment is tracked by {@link #open(Collection)} and {@link #close(Collection)}. Since a partition can be written by multiple lanes, the requested operations are combined, so that
+ * the lanes do not override each other:
+ * <ul>
+ *     <li>the partitions are rewound to the lowest of the requested offsets</li>
+ *     <li>a partition is resumed only when all the lanes that paused it have resumed it</li>
+ *     <li>the shortest of the requested timeouts is kept, so that the earliest wake-up request is honored</li>
+ * </ul>
+ */
+class DeferredTaskContext {
+    private final SinkTaskContext delegate;
+    @GuardedBy("this")
+    private final Set<TopicPartition> assignment;
+    @GuardedBy("this")
+    private final Map<TopicPartition, Long> offsets;
+    // lanes that paused each partition
+    @GuardedBy("this")
+    private final Map<TopicPartition, Set<Integer>> pausedBy;
+    @GuardedBy("this")
+    private final Set<TopicPartition> toPause;
+    @GuardedBy("this")
+    private final Set<TopicPartition> toResume;
+    @GuardedBy("this")
+    private boolean commitRequested;
+    @GuardedBy("this")
+    private long timeoutMs;
+
+    DeferredTaskContext(SinkTaskContext delegate) {
+        this.delegate = delegate;
+        assignment = new HashSet<>();
+        offsets = new HashMap<>();
+        pausedBy = new HashMap<>();
+        toPause = new LinkedHashSet<>();
+        toResume = new LinkedHashSet<>();
+        commitRequested = false;
+        timeoutMs = -1L;
+    }
+
+    /**
+     * @return the context of the given lane, recording its operations
+     */
+    SinkTaskContext lane(int lane) {
+        return new LaneContext(lane);
+    }
+
+    /**
+     * Applies the recorded operations to the underlying context, must be called from the task thread.
+     */
+    synchronized void apply() {
+        if (!offsets.isEmpty()) {
+            delegate.offset(new HashMap<>(offsets));
+            offsets.clear();
+        }
+        if (!toPause.isEmpty()) {
+            delegate.pause(toPause.toArray(new TopicPartition[0]));
+            toPause.clear();
+        }
+        if (!toResume.isEmpty()) {
+            delegate.resume(toResume.toArray(new TopicPartition[0]));
+            toResume.clear();
+        }
+        if (commitRequested) {
+            delegate.requestCommit();
+            commitRequested = false;
+        }
+        if (timeoutMs >= 0) {
+            delegate.timeout(timeoutMs);
+            timeoutMs = -1L;
+        }
+    }
+
+    /**
+     * Adds the given partitions to the assignment returned to the lanes, must be called from the task thread.
+     */
+    synchronized void open(Collection<TopicPartition> partitions) {
+        assignment.addAll(partitions);
+    }
+
+    /**
+     * Stops tracking the given partitions, e.g. when they are revoked.
+     */
+    synchronized void close(Collection<TopicPartition> partitions) {
+        assignment.removeAll(partitions);
+        partitions.forEach(pausedBy::remove);
+        offsets.keySet().removeAll(partitions);
+        toPause.removeAll(partitions);
+        toResume.removeAll(partitions);
+    }
+
+    private synchronized Set<TopicPartition> assignment() {
+        return new HashSet<>(assignment);
+    }
+
+    private synchronized void offset(TopicPartition tp, long offset) {
+        offsets.merge(tp, offset, Math::min);
+    }
+
+    private synchronized void timeout(long timeoutMs) {
+        this.timeoutMs = this.timeoutMs < 0 ? timeoutMs : Math.min(this.timeoutMs, timeoutMs);
+    }
+
+    private synchronized void pause(int lane, TopicPartition... partitions) {
+        for (TopicPartition tp : partitions) {
+            pausedBy.computeIfAbsent(tp, it -> new HashSet<>()).add(lane);
+            toResume.remove(tp);
+            toPause.add(tp);
+        }
+    }
+
+    private synchronized void resume(int lane, TopicPartition... partitions) {
+        for (TopicPartition tp : partitions) {
+            Set<Integer> lanes = pausedBy.get(tp);
+            if (lanes != null) {
+                lanes.remove(lane);
+                if (!lanes.isEmpty()) {
+                    // still paused by other lanes
+                    continue;
+                }
+                pausedBy.remove(tp);
+            }
+            toPause.remove(tp);
+            toResume.add(tp);
+        }
+    }
+
+    private synchronized void requestCommit() {
+        commitRequested = true;
+    }
+
+    private class LaneContext implements SinkTaskContext {
+        private final int lane;
+
+        LaneContext(int lane) {
+            this.lane = lane;
+        }
+
+        @Override
+        public Map<String, String> configs() {
+            return delegate.configs();
+        }
+
+        @Override
+        public void offset(Map<TopicPartition, Long> offsets) {
+            offsets.forEach(DeferredTaskContext.this::offset);
+        }
+
+        @Override
+        public void offset(TopicPartition tp, long offset) {
+            DeferredTaskContext.this.offset(tp, offset);
+        }
+
+        @Override
+        public void timeout(long timeoutMs) {
+            DeferredTaskContext.this.timeout(timeoutMs);
+        }
+
+        @Override
+        public Set<TopicPartition> assignment() {
+            return DeferredTaskContext.this.assignment();
+        }
+
+        @Override
+        public void pause(TopicPartition... partitions) {
+            DeferredTaskContext.this.pause(lane, partitions);
+        }
+
+        @Override
+        public void resume(TopicPartition... partitions) {
+            DeferredTaskContext.this.resume(lane, partitions);
+        }
+
+        @Override
+        public void requestCommit() {
+            DeferredTaskContext.this.requestCommit();
+        }
+
+        @Override
+        public ErrantRecordReporter errantRecordReporter() {
+            return delegate.errantRecordReporter();
+        }
+
+        @Override
+        public PluginMetrics pluginMetrics() {
+            return delegate.pluginMetrics();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2023 ArangoDB GmbH, Cologne, Germany
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Copyright holder is ArangoDB GmbH, Cologne, Germany
+ */
+
+
+package com.arangodb.kafka;
+
+import com.arangodb.ArangoCollection;
+import com.arangodb.ArangoDBException;
+import com.arangodb.entity.ErrorEntity;
+import com.arangodb.entity.MultiDocumentEntity;
+import com.arangodb.model.DocumentCreateOptions;
+import com.arangodb.model.OverwriteMode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the offsets of the consumed records in an ArangoDB collection, one document per partition holding the offset
+ * of the next record to consume. The offsets are written in the same stream transaction as the records, so that they
+ * are the source of truth when partitions are assigned.
+ */
+class OffsetStore {
+    private final ArangoCollection col;
+
+    OffsetStore(ArangoCollection col) {
+        this.col = col;
+    }
+
+    String name() {
+        return col.name();
+    }
+
+    /**
+     * @return the stored offsets of the given partitions, if any
+     */
+    Map<TopicPartition, Long> read(Collection<TopicPartition> partitions) {
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        for (TopicPartition tp : partitions) {
+            ObjectNode doc = col.getDocument(key(tp), ObjectNode.class);
+            if (doc != null && doc.hasNonNull("offset")) {
+                offsets.put(tp, doc.get("offset").longValue());
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * Writes the given offsets within the given stream transaction.
+     *
+     * @throws ArangoDBException if the offsets cannot be written, e.g. on write conflicts, handled as the errors of the
+     *                           batch written in the same transaction
+     */
+    void write(Map<TopicPartition, Long> offsets, String transactionId) {
+        List<ObjectNode> docs = new ArrayList<>(offsets.size());
+        offsets.forEach((tp, offset) -> {
+            ObjectNode doc = JsonNodeFactory.instance.objectNode();
+            doc.put("_key", key(tp));
+            doc.put("topic", tp.topic());
+            doc.put("partition", tp.partition());
+            doc.put("offset", offset);
+            docs.add(doc);
+        });
+        MultiDocumentEntity<?> res = col.insertDocuments(docs, new DocumentCreateOptions()
+                .overwriteMode(OverwriteMode.replace)
+                .streamTransactionId(transactionId));
+        List<ErrorEntity> errors = res.getErrors();
+        if (errors != null && !errors.isEmpty()) {
+            throw new ArangoDBException(errors.get(0));
+        }
+    }
+
+    static String key(TopicPartition tp) {
+        return tp.topic() + "-" + tp.partition();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2023 ArangoDB GmbH, Cologne, Germany
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Copyright holder is ArangoDB GmbH, Cologne, Germany
+ */
+
+
+package com.arangodb.kafka;
+
+import java.util.List;
+
+/**
+ * Token buckets limiting the documents and the bytes written per second, with a burst of one second. Requests are
+ * allowed as long as the buckets are not empty, possibly overdrawing them, so that batches larger than the rate are
+ * not starved.
+ */
+class RateLimiter {
+    private final double docsPerSec;
+    private final double bytesPerSec;
+    private double docTokens;
+    private double byteTokens;
+    private long lastRefill;
+
+    RateLimiter(double docsPerSec, double bytesPerSec) {
+        this.docsPerSec = docsPerSec;
+        this.bytesPerSec = bytesPerSec;
+        docTokens = docsPerSec;
+        byteTokens = bytesPerSec;
+        lastRefill = System.currentTimeMillis();
+    }
+
+    /**
+     * @param ops operations to write
+     * @param now current time in milliseconds
+     * @return {@code 0} if the operations can be written, otherwise the time in milliseconds to wait before retrying
+     */
+    long acquire(List<WriteOperation> ops, long now) {
+        double elapsedSec = Math.max(0, now - lastRefill) / 1000.0;
+        lastRefill = now;
+        docTokens = Math.min(docsPerSec, docTokens + elapsedSec * docsPerSec);
+        byteTokens = Math.min(bytesPerSec, byteTokens + elapsedSec * bytesPerSec);
+
+        long waitMs = Math.max(waitMs(docTokens, docsPerSec), waitMs(byteTokens, bytesPerSec));
+        if (waitMs > 0) {
+            return waitMs;
+        }
+        if (docsPerSec > 0) {
+            docTokens -= ops.size();
+        }
+        if (bytesPerSec > 0) {
+            byteTokens -= ops.stream().mapToLong(WriteOperation::size).sum();
+        }
+        return 0;
+    }
+
+    private static long waitMs(double tokens, double rate) {
+        if (rate <= 0 || tokens >= 0) {
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil(-tokens / rate * 1000));
+    }
+}
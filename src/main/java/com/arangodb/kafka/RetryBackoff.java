@@ -0,0 +1,114 @@
+/*
+ * Copyright 2023 ArangoDB GmbH, Cologne, Germany
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Copyright holder is ArangoDB GmbH, Cologne, Germany
+ */
+
+
+package com.arangodb.kafka;
+
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.config.ArangoSinkConfig.RetryBackoffStrategy;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Computes the backoff before retrying transient errors, either fixed or exponential with full jitter, so that tasks
+ * failing at the same time do not retry in lockstep. Optionally, the total backoff time is limited to a ratio of the
+ * wall time, over a sliding window of {@link #BUDGET_WINDOW_MS}.
+ */
+class RetryBackoff {
+    static final long BUDGET_WINDOW_MS = 10 * 60 * 1_000;
+
+    private final RetryBackoffStrategy strategy;
+    private final long baseMs;
+    private final long maxMs;
+    private final double budgetRatio;
+    // start time and duration of the backoffs within the budget window
+    private final Deque<long[]> backoffs;
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong backoffTimeMs = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+
+    RetryBackoff(ArangoSinkConfig config) {
+        this(config.getRetryBackoffStrategy(), config.getRetryBackoffMs(), config.getRetryBackoffMaxMs(),
+                config.getRetryBudgetRatio());
+    }
+
+    RetryBackoff(RetryBackoffStrategy strategy, long baseMs, long maxMs, double budgetRatio) {
+        this.strategy = strategy;
+        this.baseMs = baseMs;
+        this.maxMs = maxMs;
+        this.budgetRatio = budgetRatio;
+        backoffs = new ArrayDeque<>();
+    }
+
+    /**
+     * @param attempt number of consecutive failed attempts before the current one, starting from {@code 0}
+     * @return the time in milliseconds to wait before the next retry, or {@code -1} if the retry budget is exhausted
+     */
+    long next(int attempt) {
+        long backoff = backoff(attempt);
+        if (budgetRatio > 0 && !acquire(System.currentTimeMillis(), backoff)) {
+            budgetExhausted.incrementAndGet();
+            return -1;
+        }
+        retries.incrementAndGet();
+        backoffTimeMs.addAndGet(backoff);
+        return backoff;
+    }
+
+    private long backoff(int attempt) {
+        if (RetryBackoffStrategy.FIXED.equals(strategy)) {
+            return baseMs;
+        }
+        long cap = baseMs << Math.min(attempt, 30);
+        if (cap <= 0 || cap > maxMs) {
+            cap = maxMs;
+        }
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private boolean acquire(long now, long backoff) {
+        while (!backoffs.isEmpty() && backoffs.peekFirst()[0] + backoffs.peekFirst()[1] <= now - BUDGET_WINDOW_MS) {
+            backoffs.removeFirst();
+        }
+        long spent = 0;
+        for (long[] it : backoffs) {
+            spent += it[1] - Math.max(0, now - BUDGET_WINDOW_MS - it[0]);
+        }
+        if (spent + backoff > budgetRatio * BUDGET_WINDOW_MS) {
+            return false;
+        }
+        backoffs.addLast(new long[]{now, backoff});
+        return true;
+    }
+
+    long retries() {
+        return retries.get();
+    }
+
+    long backoffTimeMs() {
+        return backoffTimeMs.get();
+    }
+
+    long budgetExhausted() {
+        return budgetExhausted.get();
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2023 ArangoDB GmbH, Cologne, Germany
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Copyright holder is ArangoDB GmbH, Cologne, Germany
+ */
+
+package com.arangodb.kafka;
+
+import com.arangodb.kafka.conversion.Aggregator;
+import com.arangodb.kafka.conversion.KeyConverter;
+import com.arangodb.kafka.conversion.RecordConverter;
+import com.arangodb.kafka.conversion.TargetRouter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Write operation of a single record, converted to the document (or the document key in case of deletes) to write.
+ * Conversion errors are retained, so that they are reported as data errors of the single record, without failing the
+ * batch of the other operations.
+ */
+class WriteOperation {
+    enum Type {INSERT, DELETE}
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final SinkRecord record;
+    private final Type type;
+    private final String database;
+    private final String collection;
+    private final String key;
+    private final ObjectNode document;
+    private final RuntimeException error;
+    // records merged into this operation, null if only the record of the operation
+    private List<SinkRecord> sources;
+    // whether the target was read from the record, rather than from the configuration
+    private boolean routed;
+    private int size = -1;
+
+    private WriteOperation(SinkRecord record, Type type, String database, String collection, String key,
+                           ObjectNode document, RuntimeException error) {
+        this.record = record;
+        this.type = type;
+        this.database = database;
+        this.collection = collection;
+        this.key = key;
+        this.document = document;
+        this.error = error;
+    }
+
+    static WriteOperation of(SinkRecord record, KeyConverter keyConverter, RecordConverter converter) {
+        return of(record, keyConverter, converter, null);
+    }
+
+    /**
+     * @param router resolves the target database and collection, if {@code null} the operation targets the default
+     *               collection
+     */
+    static WriteOperation of(SinkRecord record, KeyConverter keyConverter, RecordConverter converter,
+                             TargetRouter router) {
+        Type type = record.key() != null && record.value() == null ? Type.DELETE : Type.INSERT;
+        try {
+            String database = router != null ? router.database(record) : null;
+            WriteOperation op;
+            if (Type.DELETE.equals(type)) {
+                String collection = router != null ? router.collection(record, null) : null;
+                op = new WriteOperation(record, type, database, collection, keyConverter.convert(record), null, null);
+            } else {
+                ObjectNode doc = converter.convert(record);
+                String collection = router != null ? router.collection(record, doc) : null;
+                op = new WriteOperation(record, type, database, collection, doc.get("_key").textValue(), doc, null);
+            }
+            op.routed = router != null && router.isRoutedByRecord(record, op.document);
+            return op;
+        } catch (RuntimeException e) {
+            return new WriteOperation(record, type, null, null, null, null, e);
+        }
+    }
+
+    /**
+     * @return the record of the operation, i.e. the earliest of the records merged into it
+     */
+    SinkRecord record() {
+        return record;
+    }
+
+    /**
+     * @return the records whose changes are written by this operation, in order
+     */
+    List<SinkRecord> sources() {
+        return sources != null ? sources : Collections.singletonList(record);
+    }
+
+    /**
+     * @return whether the target database or collection has been read from the record headers or value
+     */
+    boolean isRouted() {
+        return routed;
+    }
+
+    Type type() {
+        return type;
+    }
+
+    /**
+     * @return the target database, or {@code null} for the default database
+     */
+    String database() {
+        return database;
+    }
+
+    /**
+     * @return the target collection, or {@code null} for the default collection
+     */
+    String collection() {
+        return collection;
+    }
+
+    /**
+     * @return the target database and collection, identifying the handles to write the operation with
+     */
+    List<String> target() {
+        return Arrays.asList(database, collection);
+    }
+
+    /**
+     * @return the conversion error, or {@code null} if the conversion succeeded
+     */
+    RuntimeException error() {
+        return error;
+    }
+
+    /**
+     * @return the document key, or {@code null} if the conversion failed
+     */
+    String key() {
+        return key;
+    }
+
+    /**
+     * Merges the document of this operation, as a partial update, into the document of the given previous update of
+     * the same document.
+     *
+     * @param previous     the previous update, which must not have failed conversion
+     * @param mergeObjects whether nested objects are merged, rather than replaced
+     * @return the update resulting from both, retaining the record of the previous update, so that the offsets of the
+     * merged records are not committed before it is written
+     */
+    WriteOperation coalesce(WriteOperation previous, boolean mergeObjects) {
+        ObjectNode merged = previous.document.deepCopy();
+        merge(merged, document, mergeObjects);
+        WriteOperation op = new WriteOperation(previous.record, type, database, collection, key, merged, null);
+        op.sources = new ArrayList<>(previous.sources());
+        op.sources.add(record);
+        op.routed = previous.routed && routed;
+        return op;
+    }
+
+    /**
+     * @return the accumulator of this insert, or a failed operation if the document cannot be aggregated
+     */
+    WriteOperation accumulator(Aggregator aggregator) {
+        try {
+            ObjectNode accumulated = aggregator.init(document);
+            WriteOperation op = new WriteOperation(record, type, database, collection, key, accumulated, null);
+            op.routed = routed;
+            return op;
+        } catch (RuntimeException e) {
+            return new WriteOperation(record, type, database, collection, null, null, e);
+        }
+    }
+
+    /**
+     * Combines the given accumulator of a later insert of the same document into this one, retaining the record of
+     * this operation, so that the offsets of the aggregated records are not committed before it is written.
+     */
+    void accumulate(WriteOperation next, Aggregator aggregator) {
+        aggregator.merge(document, next.document);
+        size = -1;
+    }
+
+    private static void merge(ObjectNode target, ObjectNode patch, boolean mergeObjects) {
+        patch.fields().forEachRemaining(it -> {
+            JsonNode current = target.get(it.getKey());
+            if (mergeObjects && current != null && current.isObject() && it.getValue().isObject()) {
+                merge((ObjectNode) current, (ObjectNode) it.getValue(), true);
+            } else {
+                // null values are kept, as written with keepNull
+                target.set(it.getKey(), it.getValue().deepCopy());
+            }
+        });
+    }
+
+    /**
+     * @return the size in bytes of the serialized payload, or {@code 0} if the conversion failed
+     */
+    int size() {
+        if (size < 0) {
+            if (error != null) {
+                size = 0;
+            } else if (Type.DELETE.equals(type)) {
+                size = key.getBytes(StandardCharsets.UTF_8).length;
+            } else {
+                try {
+                    size = MAPPER.writeValueAsBytes(document).length;
+                } catch (JsonProcessingException e) {
+                    throw new DataException(e);
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the document to insert, or the key of the document to delete
+     */
+    Object payload() {
+        if (error != null) {
+            throw error;
+        }
+        return Type.DELETE.equals(type) ? key : document;
+    }
+}
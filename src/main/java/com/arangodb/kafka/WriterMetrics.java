@@ -0,0 +1,61 @@
+/*
+ * Copyright 2023 ArangoDB GmbH, Cologne, Germany
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Copyright holder is ArangoDB GmbH, Cologne, Germany
+ */
+
+package com.arangodb.kafka;
+
+import org.apache.kafka.common.metrics.Gauge;
+import org.apache.kafka.common.metrics.PluginMetrics;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Registers the metrics of a writer lane, if plugin metrics are supported by the Kafka Connect runtime (since Kafka
+ * 4.1). Otherwise, the metrics are not registered.
+ */
+class WriterMetrics {
+    private final static Logger LOG = LoggerFactory.getLogger(WriterMetrics.class);
+
+    private final PluginMetrics metrics;
+    private final LinkedHashMap<String, String> tags;
+
+    WriterMetrics(SinkTaskContext context, int lane) {
+        metrics = pluginMetrics(context);
+        tags = new LinkedHashMap<>();
+        tags.put("lane", String.valueOf(lane));
+    }
+
+    private static PluginMetrics pluginMetrics(SinkTaskContext context) {
+        try {
+            return context.pluginMetrics();
+        } catch (UnsupportedOperationException | LinkageError e) {
+            LOG.info("Plugin metrics not supported, writer metrics will not be registered.");
+            return null;
+        }
+    }
+
+    <T> void gauge(String name, String description, Supplier<T> value) {
+        if (metrics == null) {
+            return;
+        }
+        metrics.addMetric(metrics.metricName(name, description, tags), (Gauge<T>) (config, now) -> value.get());
+    }
+}
@@ -21,8 +21,10 @@ package com.arangodb.kafka.config;
 import com.arangodb.ArangoCollection;
 import com.arangodb.ArangoDB;
 import com.arangodb.config.HostDescription;
+import com.arangodb.model.AqlQueryOptions;
 import com.arangodb.model.DocumentCreateOptions;
 import com.arangodb.model.DocumentDeleteOptions;
+import com.arangodb.model.DocumentImportOptions;
 import org.apache.kafka.common.config.AbstractConfig;
 import org.apache.kafka.common.config.ConfigDef;
 import org.apache.kafka.common.config.ConfigException;
@@ -57,6 +59,38 @@ public class ArangoSinkConfig extends AbstractConfig {
         NONE
     }
 
+    public enum LanesRouting {
+        PARTITION,
+        KEY
+    }
+
+    public enum RetryBackoffStrategy {
+        FIXED,
+        EXPONENTIAL
+    }
+
+    public enum WriteStrategy {
+        DOCUMENT,
+        AQL_UPSERT,
+        IMPORT
+    }
+
+    public enum VersionSource {
+        FIELD,
+        OFFSET,
+        TIMESTAMP
+    }
+
+    public enum AggregationOperator {
+        SUM,
+        MIN,
+        MAX,
+        LAST,
+        COUNT
+    }
+
+    private static final String MAX_QUEUE_TIME_HEADER = "x-arango-max-queue-time-seconds";
+
     //region Connection
     private static final String CONNECTION_GROUP = "Connection";
     private static final String CONNECTION_PREFIX = "connection.";
@@ -82,7 +116,9 @@ public class ArangoSinkConfig extends AbstractConfig {
     private static final String CONNECTION_DATABASE_DISPLAY = "Database";
 
     public static final String CONNECTION_COLLECTION = CONNECTION_PREFIX + "collection";
-    private static final String CONNECTION_COLLECTION_DOC = "Target collection name.";
+    private static final String CONNECTION_COLLECTION_DOC = "Target collection name. It can contain the placeholder " +
+            "``${topic}``, replaced with the topic of each record, where characters not allowed in collection names " +
+            "are replaced with ``_``.";
     private static final String CONNECTION_COLLECTION_DISPLAY = "Collection";
 
     public static final String CONNECTION_ACQUIRE_HOST_LIST_ENABLED = CONNECTION_PREFIX + "acquireHostList.enabled";
@@ -199,16 +235,309 @@ public class ArangoSinkConfig extends AbstractConfig {
             "Whether to wait until the documents have been synced to disk.";
     private static final String INSERT_WAIT_FOR_SYNC_DISPLAY = "WaitForSync";
 
+    public static final String INSERT_VERSION_ATTRIBUTE = "insert.versionAttribute";
+    private static final String INSERT_VERSION_ATTRIBUTE_DOC =
+            "Name of the document attribute holding the document version. If set, the server ignores the writes\n"
+                    + "of documents having a lower version than the stored one, so that stale redelivered records do not\n"
+                    + "overwrite newer documents. Requires ``insert.overwriteMode`` set to ``replace`` or ``update`` and\n"
+                    + "``write.strategy`` set to ``document``, and is not supported with ``aggregation.fields`` or\n"
+                    + "``edge.vertices.enabled``.";
+    private static final String INSERT_VERSION_ATTRIBUTE_DISPLAY = "Version Attribute";
+
+    public static final String INSERT_VERSION_SOURCE = "insert.versionSource";
+    private static final String INSERT_VERSION_SOURCE_DEFAULT = VersionSource.FIELD.toString();
+    private static final String INSERT_VERSION_SOURCE_DOC =
+            "Source of the value of ``insert.versionAttribute``.\n"
+                    + "Supported sources are:\n"
+                    + "``field``: the attribute of the record value.\n"
+                    + "``offset``: the record offset, only comparable for records of the same partition.\n"
+                    + "``timestamp``: the record timestamp, records without timestamp are reported as data errors.";
+    private static final String INSERT_VERSION_SOURCE_DISPLAY = "Version Source";
+
     public static final String BATCH_SIZE = "batch.size";
     private static final int BATCH_SIZE_DEFAULT = 3000;
     private static final String BATCH_SIZE_DOC = "Specifies how many records to attempt to batch together for " +
             "insertion or deletion into the destination collection.";
     private static final String BATCH_SIZE_DISPLAY = "Batch Size";
 
+    public static final String BATCH_ADAPTIVE_ENABLED = "batch.adaptive.enabled";
+    private static final boolean BATCH_ADAPTIVE_ENABLED_DEFAULT = false;
+    private static final String BATCH_ADAPTIVE_ENABLED_DOC = "Whether to adapt the batch size at runtime, between " +
+            "``batch.adaptive.min.size`` and ``batch.size``. The size is increased while the write latency per " +
+            "document does not get worse, and is halved on transient errors.";
+    private static final String BATCH_ADAPTIVE_ENABLED_DISPLAY = "Enable adaptive batch size";
+
+    public static final String BATCH_ADAPTIVE_MIN_SIZE = "batch.adaptive.min.size";
+    private static final int BATCH_ADAPTIVE_MIN_SIZE_DEFAULT = 100;
+    private static final String BATCH_ADAPTIVE_MIN_SIZE_DOC = "Minimum batch size, when ``batch.adaptive.enabled`` " +
+            "is set to ``true``.";
+    private static final String BATCH_ADAPTIVE_MIN_SIZE_DISPLAY = "Adaptive batch min size";
+
+    public static final String BATCH_LINGER_MS = "batch.linger.ms";
+    private static final int BATCH_LINGER_MS_DEFAULT = 0;
+    private static final String BATCH_LINGER_MS_DOC = "Maximum time in ms to buffer records across multiple polls, " +
+            "waiting to fill a batch. Buffered records are also flushed before committing offsets. Set to ``0`` to " +
+            "write records as soon as they are received.";
+    private static final String BATCH_LINGER_MS_DISPLAY = "Batch Linger ms";
+
+    public static final String MAX_QUEUE_TIME_MS = "max.queue.time.ms";
+    private static final int MAX_QUEUE_TIME_MS_DEFAULT = 0;
+    private static final String MAX_QUEUE_TIME_MS_DOC = "Maximum time in ms that write requests can wait in the " +
+            "server scheduler queue, sent in the ``x-arango-max-queue-time-seconds`` header. Requests exceeding it " +
+            "are rejected by the server (error ``21004``) and retried as transient errors. Set to ``0`` to disable.";
+    private static final String MAX_QUEUE_TIME_MS_DISPLAY = "Max Queue Time ms";
+
+    public static final String BACKPRESSURE_QUEUE_TIME_MS = "backpressure.queue.time.ms";
+    private static final int BACKPRESSURE_QUEUE_TIME_MS_DEFAULT = 0;
+    private static final String BACKPRESSURE_QUEUE_TIME_MS_DOC = "Average server queue time in ms, as reported in " +
+            "the ``x-arango-queue-time-seconds`` header of the recent responses, above which writes are slowed down: " +
+            "the adaptive batch size is reduced and the next batch is delayed by the average queue time, up to " +
+            "``backpressure.max.delay.ms`` per put. Set to ``0`` to disable.";
+    private static final String BACKPRESSURE_QUEUE_TIME_MS_DISPLAY = "Backpressure Queue Time ms";
+
+    public static final String BACKPRESSURE_MAX_DELAY_MS = "backpressure.max.delay.ms";
+    private static final int BACKPRESSURE_MAX_DELAY_MS_DEFAULT = 1000;
+    private static final String BACKPRESSURE_MAX_DELAY_MS_DOC = "Maximum total time in ms the writes of a put are " +
+            "delayed by the backpressure. Beyond it, the partitions of the records not written yet are rewound and " +
+            "paused for the average queue time, so that the task does not exceed ``max.poll.interval.ms``.";
+    private static final String BACKPRESSURE_MAX_DELAY_MS_DISPLAY = "Backpressure Max Delay ms";
+
+    public static final String RATE_LIMIT_DOCS_PER_SEC = "rate.limit.docs.per.sec";
+    private static final double RATE_LIMIT_DOCS_PER_SEC_DEFAULT = 0.0;
+    private static final String RATE_LIMIT_DOCS_PER_SEC_DOC = "Maximum number of documents written per second by " +
+            "the connector, split evenly across its tasks and writer lanes. When exceeded, the partitions are " +
+            "paused until the limit allows writing again. Set to ``0`` to disable.";
+    private static final String RATE_LIMIT_DOCS_PER_SEC_DISPLAY = "Rate Limit Documents per Second";
+
+    public static final String RATE_LIMIT_BYTES_PER_SEC = "rate.limit.bytes.per.sec";
+    private static final double RATE_LIMIT_BYTES_PER_SEC_DEFAULT = 0.0;
+    private static final String RATE_LIMIT_BYTES_PER_SEC_DOC = "Maximum number of bytes of serialized documents " +
+            "written per second by the connector, split evenly across its tasks and writer lanes. When exceeded, " +
+            "the partitions are paused until the limit allows writing again. Set to ``0`` to disable.";
+    private static final String RATE_LIMIT_BYTES_PER_SEC_DISPLAY = "Rate Limit Bytes per Second";
+
+    public static final String BATCH_MAX_BYTES = "batch.max.bytes";
+    private static final int BATCH_MAX_BYTES_DEFAULT = 0;
+    private static final String BATCH_MAX_BYTES_DOC = "Maximum size in bytes of the serialized documents of a batch. " +
+            "Documents larger than this are handled as data errors, without being sent. Set to ``0`` to disable.";
+    private static final String BATCH_MAX_BYTES_DISPLAY = "Batch Max Bytes";
+
     public static final String DELETE_ENABLED = "delete.enabled";
     private static final boolean DELETE_ENABLED_DEFAULT = false;
-    private static final String DELETE_ENABLED_DOC = "Whether to enable delete behavior when processing tombstones.";
+    private static final String DELETE_ENABLED_DOC = "Whether to enable delete behavior when processing tombstones.\n"
+            + "It is not supported together with ``collection.routing.field``.";
     private static final String DELETE_ENABLED_DISPLAY = "Enable deletes";
+
+    public static final String MAX_IN_FLIGHT_BATCHES = "max.in.flight.batches";
+    private static final int MAX_IN_FLIGHT_BATCHES_DEFAULT = 0;
+    private static final String MAX_IN_FLIGHT_BATCHES_DOC = "Maximum number of batches per task written asynchronously, "
+            + "without waiting for the server reply to the previous ones. Offsets are committed only for records "
+            + "acknowledged by the server. Set to ``0`` to write batches synchronously.";
+    private static final String MAX_IN_FLIGHT_BATCHES_DISPLAY = "Max In-Flight Batches";
+
+    public static final String WRITE_LANES = "write.lanes";
+    private static final int WRITE_LANES_DEFAULT = 1;
+    private static final String WRITE_LANES_DOC = "Number of writer lanes per task, written concurrently. Each "
+            + "assigned partition is bound to a lane, preserving the order of its records.";
+    private static final String WRITE_LANES_DISPLAY = "Writer Lanes";
+
+    public static final String WRITE_LANES_ROUTING = "write.lanes.routing";
+    private static final String WRITE_LANES_ROUTING_DEFAULT = LanesRouting.PARTITION.toString();
+    private static final String WRITE_LANES_ROUTING_DOC =
+            "How records are routed to the writer lanes, when ``write.lanes`` is greater than ``1``.\n"
+                    + "Supported values are:\n"
+                    + "``partition``: each partition is bound to a lane, preserving the order of its records.\n"
+                    + "``key``: records are routed by hash of the document ``_key``, preserving the order of the\n"
+                    + "         records of the same document. This allows writing records from the same partition\n"
+                    + "         concurrently.";
+    private static final String WRITE_LANES_ROUTING_DISPLAY = "Writer Lanes Routing";
+
+    public static final String WRITE_COMPACTION_ENABLED = "write.compaction.enabled";
+    private static final boolean WRITE_COMPACTION_ENABLED_DEFAULT = false;
+    private static final String WRITE_COMPACTION_ENABLED_DOC =
+            "Whether to compact the records received together having the same ``_key``, writing only the last one.\n"
+                    + "Errors are reported for the record that has been written. Requires ``insert.overwriteMode``\n"
+                    + "to be set to ``replace``.";
+    private static final String WRITE_COMPACTION_ENABLED_DISPLAY = "Enable compaction";
+
+    public static final String WRITE_COALESCING_ENABLED = "write.coalescing.enabled";
+    private static final boolean WRITE_COALESCING_ENABLED_DEFAULT = false;
+    private static final String WRITE_COALESCING_ENABLED_DOC =
+            "Whether to merge the partial updates received together having the same ``_key`` into a single update,\n"
+                    + "following the server semantics of ``insert.mergeObjects``. A delete discards the previous updates\n"
+                    + "of the document. The merged update keeps the record of the first merged one to track the offsets,\n"
+                    + "while errors are reported for each of the merged records. Requires ``insert.overwriteMode`` to be\n"
+                    + "set to ``update``.";
+    private static final String WRITE_COALESCING_ENABLED_DISPLAY = "Enable coalescing";
+
+    public static final String WRITE_SILENT_ENABLED = "write.silent.enabled";
+    private static final boolean WRITE_SILENT_ENABLED_DEFAULT = false;
+    private static final String WRITE_SILENT_ENABLED_DOC =
+            "Whether to write documents in silent mode, so that the server returns only the errors instead of the\n"
+                    + "metadata of every written document. Since silent errors cannot be attributed to the documents,\n"
+                    + "batches with errors are written again in non-silent mode. Requires ``write.strategy=document``\n"
+                    + "and ``insert.overwriteMode`` not set to ``conflict``, so that writing documents again is\n"
+                    + "idempotent.";
+    private static final String WRITE_SILENT_ENABLED_DISPLAY = "Enable silent writes";
+
+    public static final String BATCH_MIXED_ENABLED = "batch.mixed.enabled";
+    private static final boolean BATCH_MIXED_ENABLED_DEFAULT = false;
+    private static final String BATCH_MIXED_ENABLED_DOC =
+            "Whether batches can contain both inserts and deletes. The inserts and the deletes of a batch are sent\n"
+                    + "concurrently, a new batch is started only when a document is both inserted and deleted.\n"
+                    + "When disabled, a new batch is started whenever the operation type changes.";
+    private static final String BATCH_MIXED_ENABLED_DISPLAY = "Enable mixed batches";
+
+    public static final String WRITE_STRATEGY = "write.strategy";
+    private static final String WRITE_STRATEGY_DEFAULT = WriteStrategy.DOCUMENT.toString();
+    private static final String WRITE_STRATEGY_DOC =
+            "How documents are written.\n"
+                    + "Supported strategies are:\n"
+                    + "``document``: documents are inserted with the document API, according to ``insert.overwriteMode``.\n"
+                    + "``aql-upsert``: documents are written with a single AQL query per batch, updating existing\n"
+                    + "               documents with ``write.aql.updateExpression`` if set, or according to\n"
+                    + "               ``insert.overwriteMode`` otherwise. In case of data errors, the batch is split\n"
+                    + "               and written again to detect the failing documents.\n"
+                    + "``import``: documents are inserted with the bulk import API, handling existing documents\n"
+                    + "            according to ``insert.overwriteMode``. Errors are attributed to the failing\n"
+                    + "            documents from the import details and are always considered data errors.";
+    private static final String WRITE_STRATEGY_DISPLAY = "Write Strategy";
+
+    public static final String WRITE_AQL_UPDATE_EXPRESSION = "write.aql.updateExpression";
+    private static final String WRITE_AQL_UPDATE_EXPRESSION_DOC =
+            "AQL expression evaluating to the object used to update existing documents, when ``write.strategy`` is\n"
+                    + "set to ``aql-upsert``. The new document is available as ``d`` and the existing one as ``OLD``.\n"
+                    + "For example: ``{ count: OLD.count + d.count, ts: MAX([OLD.ts, d.ts]) }``";
+    private static final String WRITE_AQL_UPDATE_EXPRESSION_DISPLAY = "AQL Update Expression";
+    //endregion
+
+    //region routing
+    private static final String ROUTING_GROUP = "Routing";
+
+    public static final String COLLECTION_TOPIC_MAP = "collection.topic.map";
+    private static final String COLLECTION_TOPIC_MAP_DEFAULT = "";
+    private static final String COLLECTION_TOPIC_MAP_DOC =
+            "Mapping from topics to target collections, in the format ``topic1:collection1,topic2:collection2``.\n"
+                    + "Records of topics not mapped are written to ``connection.collection``.";
+    private static final String COLLECTION_TOPIC_MAP_DISPLAY = "Topic to Collection Map";
+
+    public static final String COLLECTION_ROUTING_FIELD = "collection.routing.field";
+    private static final String COLLECTION_ROUTING_FIELD_DOC =
+            "Path of the record value field holding the target collection, with nested fields separated by dots,\n"
+                    + "e.g. ``meta.type``. Records without the field are routed according to ``collection.topic.map``\n"
+                    + "and ``connection.collection``. It cannot be used together with ``delete.enabled``, since tombstones\n"
+                    + "have no value to read the field from: use ``collection.routing.header`` to route deletes.";
+    private static final String COLLECTION_ROUTING_FIELD_DISPLAY = "Collection Routing Field";
+
+    public static final String COLLECTION_ROUTING_HEADER = "collection.routing.header";
+    private static final String COLLECTION_ROUTING_HEADER_DOC =
+            "Name of the record header holding the target collection. It takes precedence over\n"
+                    + "``collection.routing.field``. Records without the header are routed according to the other\n"
+                    + "routing options.";
+    private static final String COLLECTION_ROUTING_HEADER_DISPLAY = "Collection Routing Header";
+
+    public static final String DATABASE_TOPIC_MAP = "database.topic.map";
+    private static final String DATABASE_TOPIC_MAP_DEFAULT = "";
+    private static final String DATABASE_TOPIC_MAP_DOC =
+            "Mapping from topics to target databases, in the format ``topic1:db1,topic2:db2``.\n"
+                    + "Records of topics not mapped are written to ``connection.database``. All the databases are\n"
+                    + "accessed through the same connection and credentials.";
+    private static final String DATABASE_TOPIC_MAP_DISPLAY = "Topic to Database Map";
+
+    public static final String DATABASE_ROUTING_HEADER = "database.routing.header";
+    private static final String DATABASE_ROUTING_HEADER_DOC =
+            "Name of the record header holding the target database. It takes precedence over\n"
+                    + "``database.topic.map``. Records without the header are routed according to\n"
+                    + "``database.topic.map`` and ``connection.database``. Records routed by header or field to a\n"
+                    + "database or collection that does not exist are handled as data errors.";
+    private static final String DATABASE_ROUTING_HEADER_DISPLAY = "Database Routing Header";
+    //endregion
+
+    //region edges
+    private static final String EDGES_GROUP = "Edges";
+
+    public static final String EDGE_FROM_FIELD = "edge.from.field";
+    private static final String EDGE_FROM_FIELD_DOC =
+            "Path of the record value field holding the source vertex of the edges, with nested fields separated by\n"
+                    + "dots. If set, together with ``edge.to.field``, the connector writes edges and derives their\n"
+                    + "``_from`` attribute from the field value, which must be a document handle (``<collection>/<key>``)\n"
+                    + "or, if ``edge.from.collection`` is set, a document key. Records without a valid value are\n"
+                    + "reported as data errors, without being sent to the database.";
+    private static final String EDGE_FROM_FIELD_DISPLAY = "Edge From Field";
+
+    public static final String EDGE_FROM_COLLECTION = "edge.from.collection";
+    private static final String EDGE_FROM_COLLECTION_DOC =
+            "Vertex collection of the source vertices, prepended to the key read from ``edge.from.field``.";
+    private static final String EDGE_FROM_COLLECTION_DISPLAY = "Edge From Collection";
+
+    public static final String EDGE_TO_FIELD = "edge.to.field";
+    private static final String EDGE_TO_FIELD_DOC =
+            "Path of the record value field holding the target vertex of the edges, see ``edge.from.field``.";
+    private static final String EDGE_TO_FIELD_DISPLAY = "Edge To Field";
+
+    public static final String EDGE_TO_COLLECTION = "edge.to.collection";
+    private static final String EDGE_TO_COLLECTION_DOC =
+            "Vertex collection of the target vertices, prepended to the key read from ``edge.to.field``.";
+    private static final String EDGE_TO_COLLECTION_DISPLAY = "Edge To Collection";
+
+    public static final String EDGE_VERTICES_ENABLED = "edge.vertices.enabled";
+    private static final boolean EDGE_VERTICES_ENABLED_DEFAULT = false;
+    private static final String EDGE_VERTICES_ENABLED_DOC =
+            "Whether to create the missing vertices of the edges, in the same AQL query writing the edges of each\n"
+                    + "batch, so that the vertices are never missing when the edges are written. The vertices are\n"
+                    + "inserted with only their ``_key``, while the existing ones are left unchanged. Requires\n"
+                    + "``edge.from.collection`` and ``edge.to.collection``.";
+    private static final String EDGE_VERTICES_ENABLED_DISPLAY = "Create Edge Vertices";
+    //endregion
+
+    //region exactly once
+    private static final String EXACTLY_ONCE_GROUP = "Exactly Once";
+
+    public static final String EXACTLY_ONCE_ENABLED = "exactly.once.enabled";
+    private static final boolean EXACTLY_ONCE_ENABLED_DEFAULT = false;
+    private static final String EXACTLY_ONCE_ENABLED_DOC =
+            "Whether to write each batch in a stream transaction, together with the offsets of the written records.\n"
+                    + "The offsets are stored in ``exactly.once.offsets.collection`` and used to seek the assigned\n"
+                    + "partitions, so that every record is written exactly once, regardless of the offsets committed\n"
+                    + "to Kafka. Records reported to the dead letter queue can still be reported more than once.\n"
+                    + "Requires ``write.strategy=document``, ``max.in.flight.batches=0``, ``batch.mixed.enabled=false``,\n"
+                    + "``write.lanes.routing=partition``, ``write.coalescing.enabled=false``, no database routing and\n"
+                    + "no collection routing by field or header, so that the records of each partition are written in\n"
+                    + "order.";
+    private static final String EXACTLY_ONCE_ENABLED_DISPLAY = "Enable exactly once";
+
+    public static final String EXACTLY_ONCE_OFFSETS_COLLECTION = "exactly.once.offsets.collection";
+    private static final String EXACTLY_ONCE_OFFSETS_COLLECTION_DEFAULT = "kafka_offsets";
+    private static final String EXACTLY_ONCE_OFFSETS_COLLECTION_DOC =
+            "Existing collection in ``connection.database`` storing the offsets, when ``exactly.once.enabled`` is set\n"
+                    + "to ``true``. The offsets are keyed by topic and partition, so every connector must use its own\n"
+                    + "collection.";
+    private static final String EXACTLY_ONCE_OFFSETS_COLLECTION_DISPLAY = "Offsets Collection";
+    //endregion
+
+    //region aggregation
+    private static final String AGGREGATION_GROUP = "Aggregation";
+
+    public static final String AGGREGATION_FIELDS = "aggregation.fields";
+    private static final String AGGREGATION_FIELDS_DEFAULT = "";
+    private static final String AGGREGATION_FIELDS_DOC =
+            "Top level fields to aggregate per document key, in the format ``field1:operator1,field2:operator2``,\n"
+                    + "where the operator is one of ``sum``, ``min``, ``max``, ``last`` or ``count`` (number of\n"
+                    + "records, regardless of the field value). If set, inserted records are accumulated in memory and\n"
+                    + "written before committing offsets, or when ``aggregation.max.keys`` is reached, as a single AQL\n"
+                    + "upsert per key, combining the accumulated values with the stored ones on the server. Other fields\n"
+                    + "of the records are not written. Deletes are written immediately, discarding the accumulated\n"
+                    + "values of the deleted document. Records with non-numeric values of ``sum``, ``min`` or ``max``\n"
+                    + "fields are reported as data errors. Since the aggregated values are not idempotent, records\n"
+                    + "redelivered after a failure are aggregated again.";
+    private static final String AGGREGATION_FIELDS_DISPLAY = "Aggregation Fields";
+
+    public static final String AGGREGATION_MAX_KEYS = "aggregation.max.keys";
+    private static final int AGGREGATION_MAX_KEYS_DEFAULT = 10_000;
+    private static final String AGGREGATION_MAX_KEYS_DOC =
+            "Maximum number of documents accumulated in memory, when ``aggregation.fields`` is set. When reached,\n"
+                    + "all the accumulated documents are written.";
+    private static final String AGGREGATION_MAX_KEYS_DISPLAY = "Aggregation Max Keys";
     //endregion
 
     //region error handling
@@ -249,6 +578,77 @@ public class ArangoSinkConfig extends AbstractConfig {
     private static final String RETRY_BACKOFF_MS_DOC =
             "The time in milliseconds to wait following an error before a retry attempt is made.";
     private static final String RETRY_BACKOFF_MS_DISPLAY = "Retry Backoff (millis)";
+
+    public static final String MAX_DOCUMENT_RETRIES = "max.document.retries";
+    private static final int MAX_DOCUMENT_RETRIES_DEFAULT = 0;
+    private static final String MAX_DOCUMENT_RETRIES_DOC =
+            "The maximum number of times to retry within the task the documents of a batch failed with transient "
+                    + "errors, before handling the errors according to ``max.retries``. Only the failed documents, "
+                    + "and the following ones in the batch with the same ``_key``, are written again.";
+    private static final String MAX_DOCUMENT_RETRIES_DISPLAY = "Maximum Document Retries";
+
+    public static final String DOCUMENT_RETRY_BACKOFF_MS = "document.retry.backoff.ms";
+    private static final int DOCUMENT_RETRY_BACKOFF_MS_DEFAULT = 100;
+    private static final String DOCUMENT_RETRY_BACKOFF_MS_DOC =
+            "The time in milliseconds to wait before retrying the failed documents of a batch.";
+    private static final String DOCUMENT_RETRY_BACKOFF_MS_DISPLAY = "Document Retry Backoff (millis)";
+
+    public static final String RETRY_REWIND_ENABLED = "retry.rewind.enabled";
+    private static final boolean RETRY_REWIND_ENABLED_DEFAULT = false;
+    private static final String RETRY_REWIND_ENABLED_DOC =
+            "Whether to handle transient errors by rewinding and pausing only the partitions with records that could "
+                    + "not be written, while the records of the other partitions keep being written. Partitions are "
+                    + "paused for ``retry.backoff.ms`` and ``max.retries`` is counted per partition. If disabled, the "
+                    + "records of the current put are redelivered by the framework for all the partitions. Always "
+                    + "enabled if ``max.in.flight.batches`` or ``batch.linger.ms`` is set.";
+    private static final String RETRY_REWIND_ENABLED_DISPLAY = "Partition Rewind on Retry";
+
+    public static final String RETRY_BACKOFF_STRATEGY = "retry.backoff.strategy";
+    private static final String RETRY_BACKOFF_STRATEGY_DEFAULT = RetryBackoffStrategy.FIXED.toString();
+    private static final String RETRY_BACKOFF_STRATEGY_DOC =
+            "How the backoff before retrying transient errors is computed.\n"
+                    + "Supported strategies are:\n"
+                    + "``fixed``: always ``retry.backoff.ms``.\n"
+                    + "``exponential``: random between 0 and ``retry.backoff.ms`` doubled at each consecutive retry,\n"
+                    + "                 capped to ``retry.backoff.max.ms`` (full jitter).";
+    private static final String RETRY_BACKOFF_STRATEGY_DISPLAY = "Retry Backoff Strategy";
+
+    public static final String RETRY_BACKOFF_MAX_MS = "retry.backoff.max.ms";
+    private static final int RETRY_BACKOFF_MAX_MS_DEFAULT = 60_000;
+    private static final String RETRY_BACKOFF_MAX_MS_DOC =
+            "The maximum time in milliseconds to wait before a retry attempt, when ``retry.backoff.strategy`` is set\n"
+                    + "to ``exponential``.";
+    private static final String RETRY_BACKOFF_MAX_MS_DISPLAY = "Maximum Retry Backoff (millis)";
+
+    public static final String RETRY_BUDGET_RATIO = "retry.budget.ratio";
+    private static final double RETRY_BUDGET_RATIO_DEFAULT = 0.0;
+    private static final String RETRY_BUDGET_RATIO_DOC =
+            "The maximum ratio of the wall time, over a sliding window of 10 minutes, that each writer can spend\n"
+                    + "waiting to retry transient errors. When exceeded, transient errors are handled as if the\n"
+                    + "retries were exhausted. Set to 0 to disable.";
+    private static final String RETRY_BUDGET_RATIO_DISPLAY = "Retry Budget Ratio";
+
+    public static final String CIRCUIT_BREAKER_ENABLED = "circuit.breaker.enabled";
+    private static final boolean CIRCUIT_BREAKER_ENABLED_DEFAULT = false;
+    private static final String CIRCUIT_BREAKER_ENABLED_DOC =
+            "Whether to pause all the assigned partitions after ``circuit.breaker.failure.threshold`` consecutive\n"
+                    + "transient errors, instead of consuming the retries. After ``circuit.breaker.open.ms``, the\n"
+                    + "database is probed with a version request and the partitions are resumed if it succeeds.\n"
+                    + "The circuit breaker is shared by the writer lanes of the task, so that a single probe is sent.";
+    private static final String CIRCUIT_BREAKER_ENABLED_DISPLAY = "Enable Circuit Breaker";
+
+    public static final String CIRCUIT_BREAKER_FAILURE_THRESHOLD = "circuit.breaker.failure.threshold";
+    private static final int CIRCUIT_BREAKER_FAILURE_THRESHOLD_DEFAULT = 3;
+    private static final String CIRCUIT_BREAKER_FAILURE_THRESHOLD_DOC =
+            "The number of consecutive transient errors opening the circuit breaker. Should be lower than\n"
+                    + "``max.retries``, otherwise the retries are exhausted before the circuit breaker opens.";
+    private static final String CIRCUIT_BREAKER_FAILURE_THRESHOLD_DISPLAY = "Circuit Breaker Failure Threshold";
+
+    public static final String CIRCUIT_BREAKER_OPEN_MS = "circuit.breaker.open.ms";
+    private static final int CIRCUIT_BREAKER_OPEN_MS_DEFAULT = 30_000;
+    private static final String CIRCUIT_BREAKER_OPEN_MS_DOC =
+            "The time in milliseconds to wait after the circuit breaker opens, before probing the database.";
+    private static final String CIRCUIT_BREAKER_OPEN_MS_DISPLAY = "Circuit Breaker Open Time (millis)";
     //endregion
 
     public static final ConfigDef CONFIG_DEF = new ConfigDef()
@@ -552,6 +952,409 @@ public class ArangoSinkConfig extends AbstractConfig {
                     ConfigDef.Width.SHORT,
                     INSERT_WAIT_FOR_SYNC_DISPLAY
             )
+            .define(
+                    MAX_IN_FLIGHT_BATCHES,
+                    ConfigDef.Type.INT,
+                    MAX_IN_FLIGHT_BATCHES_DEFAULT,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    MAX_IN_FLIGHT_BATCHES_DOC,
+                    WRITES_GROUP,
+                    7,
+                    ConfigDef.Width.SHORT,
+                    MAX_IN_FLIGHT_BATCHES_DISPLAY
+            )
+            .define(
+                    WRITE_LANES,
+                    ConfigDef.Type.INT,
+                    WRITE_LANES_DEFAULT,
+                    ConfigDef.Range.atLeast(1),
+                    ConfigDef.Importance.LOW,
+                    WRITE_LANES_DOC,
+                    WRITES_GROUP,
+                    8,
+                    ConfigDef.Width.SHORT,
+                    WRITE_LANES_DISPLAY
+            )
+            .define(
+                    WRITE_LANES_ROUTING,
+                    ConfigDef.Type.STRING,
+                    WRITE_LANES_ROUTING_DEFAULT,
+                    new EnumValidator(LanesRouting.class),
+                    ConfigDef.Importance.LOW,
+                    WRITE_LANES_ROUTING_DOC,
+                    WRITES_GROUP,
+                    9,
+                    ConfigDef.Width.SHORT,
+                    WRITE_LANES_ROUTING_DISPLAY,
+                    new EnumRecommender(LanesRouting.class)
+            )
+            .define(
+                    WRITE_COMPACTION_ENABLED,
+                    ConfigDef.Type.BOOLEAN,
+                    WRITE_COMPACTION_ENABLED_DEFAULT,
+                    ConfigDef.Importance.LOW,
+                    WRITE_COMPACTION_ENABLED_DOC,
+                    WRITES_GROUP,
+                    10,
+                    ConfigDef.Width.SHORT,
+                    WRITE_COMPACTION_ENABLED_DISPLAY
+            )
+            .define(
+                    BATCH_MIXED_ENABLED,
+                    ConfigDef.Type.BOOLEAN,
+                    BATCH_MIXED_ENABLED_DEFAULT,
+                    ConfigDef.Importance.LOW,
+                    BATCH_MIXED_ENABLED_DOC,
+                    WRITES_GROUP,
+                    11,
+                    ConfigDef.Width.SHORT,
+                    BATCH_MIXED_ENABLED_DISPLAY
+            )
+            .define(
+                    WRITE_STRATEGY,
+                    ConfigDef.Type.STRING,
+                    WRITE_STRATEGY_DEFAULT,
+                    new EnumValidator(WriteStrategy.class),
+                    ConfigDef.Importance.MEDIUM,
+                    WRITE_STRATEGY_DOC,
+                    WRITES_GROUP,
+                    12,
+                    ConfigDef.Width.SHORT,
+                    WRITE_STRATEGY_DISPLAY,
+                    new EnumRecommender(WriteStrategy.class)
+            )
+            .define(
+                    WRITE_AQL_UPDATE_EXPRESSION,
+                    ConfigDef.Type.STRING,
+                    null,
+                    ConfigDef.Importance.LOW,
+                    WRITE_AQL_UPDATE_EXPRESSION_DOC,
+                    WRITES_GROUP,
+                    13,
+                    ConfigDef.Width.LONG,
+                    WRITE_AQL_UPDATE_EXPRESSION_DISPLAY
+            )
+            .define(
+                    BATCH_MAX_BYTES,
+                    ConfigDef.Type.INT,
+                    BATCH_MAX_BYTES_DEFAULT,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    BATCH_MAX_BYTES_DOC,
+                    WRITES_GROUP,
+                    14,
+                    ConfigDef.Width.SHORT,
+                    BATCH_MAX_BYTES_DISPLAY
+            )
+            .define(
+                    BATCH_ADAPTIVE_ENABLED,
+                    ConfigDef.Type.BOOLEAN,
+                    BATCH_ADAPTIVE_ENABLED_DEFAULT,
+                    ConfigDef.Importance.LOW,
+                    BATCH_ADAPTIVE_ENABLED_DOC,
+                    WRITES_GROUP,
+                    15,
+                    ConfigDef.Width.SHORT,
+                    BATCH_ADAPTIVE_ENABLED_DISPLAY
+            )
+            .define(
+                    BATCH_ADAPTIVE_MIN_SIZE,
+                    ConfigDef.Type.INT,
+                    BATCH_ADAPTIVE_MIN_SIZE_DEFAULT,
+                    ConfigDef.Range.atLeast(1),
+                    ConfigDef.Importance.LOW,
+                    BATCH_ADAPTIVE_MIN_SIZE_DOC,
+                    WRITES_GROUP,
+                    16,
+                    ConfigDef.Width.SHORT,
+                    BATCH_ADAPTIVE_MIN_SIZE_DISPLAY
+            )
+            .define(
+                    BATCH_LINGER_MS,
+                    ConfigDef.Type.INT,
+                    BATCH_LINGER_MS_DEFAULT,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    BATCH_LINGER_MS_DOC,
+                    WRITES_GROUP,
+                    17,
+                    ConfigDef.Width.SHORT,
+                    BATCH_LINGER_MS_DISPLAY
+            )
+            .define(
+                    MAX_QUEUE_TIME_MS,
+                    ConfigDef.Type.INT,
+                    MAX_QUEUE_TIME_MS_DEFAULT,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    MAX_QUEUE_TIME_MS_DOC,
+                    WRITES_GROUP,
+                    18,
+                    ConfigDef.Width.SHORT,
+                    MAX_QUEUE_TIME_MS_DISPLAY
+            )
+            .define(
+                    BACKPRESSURE_QUEUE_TIME_MS,
+                    ConfigDef.Type.INT,
+                    BACKPRESSURE_QUEUE_TIME_MS_DEFAULT,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    BACKPRESSURE_QUEUE_TIME_MS_DOC,
+                    WRITES_GROUP,
+                    19,
+                    ConfigDef.Width.SHORT,
+                    BACKPRESSURE_QUEUE_TIME_MS_DISPLAY
+            )
+            .define(
+                    BACKPRESSURE_MAX_DELAY_MS,
+                    ConfigDef.Type.INT,
+                    BACKPRESSURE_MAX_DELAY_MS_DEFAULT,
+                    ConfigDef.Range.atLeast(1),
+                    ConfigDef.Importance.LOW,
+                    BACKPRESSURE_MAX_DELAY_MS_DOC,
+                    WRITES_GROUP,
+                    20,
+                    ConfigDef.Width.SHORT,
+                    BACKPRESSURE_MAX_DELAY_MS_DISPLAY
+            )
+            .define(
+                    RATE_LIMIT_DOCS_PER_SEC,
+                    ConfigDef.Type.DOUBLE,
+                    RATE_LIMIT_DOCS_PER_SEC_DEFAULT,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    RATE_LIMIT_DOCS_PER_SEC_DOC,
+                    WRITES_GROUP,
+                    21,
+                    ConfigDef.Width.SHORT,
+                    RATE_LIMIT_DOCS_PER_SEC_DISPLAY
+            )
+            .define(
+                    RATE_LIMIT_BYTES_PER_SEC,
+                    ConfigDef.Type.DOUBLE,
+                    RATE_LIMIT_BYTES_PER_SEC_DEFAULT,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    RATE_LIMIT_BYTES_PER_SEC_DOC,
+                    WRITES_GROUP,
+                    22,
+                    ConfigDef.Width.SHORT,
+                    RATE_LIMIT_BYTES_PER_SEC_DISPLAY
+            )
+            .define(
+                    INSERT_VERSION_ATTRIBUTE,
+                    ConfigDef.Type.STRING,
+                    null,
+                    ConfigDef.Importance.LOW,
+                    INSERT_VERSION_ATTRIBUTE_DOC,
+                    WRITES_GROUP,
+                    23,
+                    ConfigDef.Width.MEDIUM,
+                    INSERT_VERSION_ATTRIBUTE_DISPLAY
+            )
+            .define(
+                    INSERT_VERSION_SOURCE,
+                    ConfigDef.Type.STRING,
+                    INSERT_VERSION_SOURCE_DEFAULT,
+                    new EnumValidator(VersionSource.class),
+                    ConfigDef.Importance.LOW,
+                    INSERT_VERSION_SOURCE_DOC,
+                    WRITES_GROUP,
+                    24,
+                    ConfigDef.Width.SHORT,
+                    INSERT_VERSION_SOURCE_DISPLAY,
+                    new EnumRecommender(VersionSource.class)
+            )
+            .define(
+                    WRITE_SILENT_ENABLED,
+                    ConfigDef.Type.BOOLEAN,
+                    WRITE_SILENT_ENABLED_DEFAULT,
+                    ConfigDef.Importance.LOW,
+                    WRITE_SILENT_ENABLED_DOC,
+                    WRITES_GROUP,
+                    25,
+                    ConfigDef.Width.SHORT,
+                    WRITE_SILENT_ENABLED_DISPLAY
+            )
+            .define(
+                    WRITE_COALESCING_ENABLED,
+                    ConfigDef.Type.BOOLEAN,
+                    WRITE_COALESCING_ENABLED_DEFAULT,
+                    ConfigDef.Importance.LOW,
+                    WRITE_COALESCING_ENABLED_DOC,
+                    WRITES_GROUP,
+                    26,
+                    ConfigDef.Width.SHORT,
+                    WRITE_COALESCING_ENABLED_DISPLAY
+            )
+            //endregion
+
+            //region routing
+            .define(
+                    COLLECTION_TOPIC_MAP,
+                    ConfigDef.Type.LIST,
+                    COLLECTION_TOPIC_MAP_DEFAULT,
+                    ConfigDef.Importance.MEDIUM,
+                    COLLECTION_TOPIC_MAP_DOC,
+                    ROUTING_GROUP,
+                    1,
+                    ConfigDef.Width.LONG,
+                    COLLECTION_TOPIC_MAP_DISPLAY
+            )
+            .define(
+                    COLLECTION_ROUTING_FIELD,
+                    ConfigDef.Type.STRING,
+                    null,
+                    ConfigDef.Importance.MEDIUM,
+                    COLLECTION_ROUTING_FIELD_DOC,
+                    ROUTING_GROUP,
+                    2,
+                    ConfigDef.Width.MEDIUM,
+                    COLLECTION_ROUTING_FIELD_DISPLAY
+            )
+            .define(
+                    COLLECTION_ROUTING_HEADER,
+                    ConfigDef.Type.STRING,
+                    null,
+                    ConfigDef.Importance.MEDIUM,
+                    COLLECTION_ROUTING_HEADER_DOC,
+                    ROUTING_GROUP,
+                    3,
+                    ConfigDef.Width.MEDIUM,
+                    COLLECTION_ROUTING_HEADER_DISPLAY
+            )
+            .define(
+                    DATABASE_TOPIC_MAP,
+                    ConfigDef.Type.LIST,
+                    DATABASE_TOPIC_MAP_DEFAULT,
+                    ConfigDef.Importance.MEDIUM,
+                    DATABASE_TOPIC_MAP_DOC,
+                    ROUTING_GROUP,
+                    4,
+                    ConfigDef.Width.LONG,
+                    DATABASE_TOPIC_MAP_DISPLAY
+            )
+            .define(
+                    DATABASE_ROUTING_HEADER,
+                    ConfigDef.Type.STRING,
+                    null,
+                    ConfigDef.Importance.MEDIUM,
+                    DATABASE_ROUTING_HEADER_DOC,
+                    ROUTING_GROUP,
+                    5,
+                    ConfigDef.Width.MEDIUM,
+                    DATABASE_ROUTING_HEADER_DISPLAY
+            )
+            //endregion
+
+            //region edges
+            .define(
+                    EDGE_FROM_FIELD,
+                    ConfigDef.Type.STRING,
+                    null,
+                    ConfigDef.Importance.MEDIUM,
+                    EDGE_FROM_FIELD_DOC,
+                    EDGES_GROUP,
+                    1,
+                    ConfigDef.Width.MEDIUM,
+                    EDGE_FROM_FIELD_DISPLAY
+            )
+            .define(
+                    EDGE_FROM_COLLECTION,
+                    ConfigDef.Type.STRING,
+                    null,
+                    ConfigDef.Importance.MEDIUM,
+                    EDGE_FROM_COLLECTION_DOC,
+                    EDGES_GROUP,
+                    2,
+                    ConfigDef.Width.MEDIUM,
+                    EDGE_FROM_COLLECTION_DISPLAY
+            )
+            .define(
+                    EDGE_TO_FIELD,
+                    ConfigDef.Type.STRING,
+                    null,
+                    ConfigDef.Importance.MEDIUM,
+                    EDGE_TO_FIELD_DOC,
+                    EDGES_GROUP,
+                    3,
+                    ConfigDef.Width.MEDIUM,
+                    EDGE_TO_FIELD_DISPLAY
+            )
+            .define(
+                    EDGE_TO_COLLECTION,
+                    ConfigDef.Type.STRING,
+                    null,
+                    ConfigDef.Importance.MEDIUM,
+                    EDGE_TO_COLLECTION_DOC,
+                    EDGES_GROUP,
+                    4,
+                    ConfigDef.Width.MEDIUM,
+                    EDGE_TO_COLLECTION_DISPLAY
+            )
+            .define(
+                    EDGE_VERTICES_ENABLED,
+                    ConfigDef.Type.BOOLEAN,
+                    EDGE_VERTICES_ENABLED_DEFAULT,
+                    ConfigDef.Importance.MEDIUM,
+                    EDGE_VERTICES_ENABLED_DOC,
+                    EDGES_GROUP,
+                    5,
+                    ConfigDef.Width.SHORT,
+                    EDGE_VERTICES_ENABLED_DISPLAY
+            )
+            //endregion
+
+            //region exactly once
+            .define(
+                    EXACTLY_ONCE_ENABLED,
+                    ConfigDef.Type.BOOLEAN,
+                    EXACTLY_ONCE_ENABLED_DEFAULT,
+                    ConfigDef.Importance.MEDIUM,
+                    EXACTLY_ONCE_ENABLED_DOC,
+                    EXACTLY_ONCE_GROUP,
+                    1,
+                    ConfigDef.Width.SHORT,
+                    EXACTLY_ONCE_ENABLED_DISPLAY
+            )
+            .define(
+                    EXACTLY_ONCE_OFFSETS_COLLECTION,
+                    ConfigDef.Type.STRING,
+                    EXACTLY_ONCE_OFFSETS_COLLECTION_DEFAULT,
+                    ConfigDef.Importance.MEDIUM,
+                    EXACTLY_ONCE_OFFSETS_COLLECTION_DOC,
+                    EXACTLY_ONCE_GROUP,
+                    2,
+                    ConfigDef.Width.MEDIUM,
+                    EXACTLY_ONCE_OFFSETS_COLLECTION_DISPLAY
+            )
+            //endregion
+
+            //region aggregation
+            .define(
+                    AGGREGATION_FIELDS,
+                    ConfigDef.Type.LIST,
+                    AGGREGATION_FIELDS_DEFAULT,
+                    ConfigDef.Importance.MEDIUM,
+                    AGGREGATION_FIELDS_DOC,
+                    AGGREGATION_GROUP,
+                    1,
+                    ConfigDef.Width.LONG,
+                    AGGREGATION_FIELDS_DISPLAY
+            )
+            .define(
+                    AGGREGATION_MAX_KEYS,
+                    ConfigDef.Type.INT,
+                    AGGREGATION_MAX_KEYS_DEFAULT,
+                    ConfigDef.Range.atLeast(1),
+                    ConfigDef.Importance.LOW,
+                    AGGREGATION_MAX_KEYS_DOC,
+                    AGGREGATION_GROUP,
+                    2,
+                    ConfigDef.Width.SHORT,
+                    AGGREGATION_MAX_KEYS_DISPLAY
+            )
             //endregion
 
             // region error handling
@@ -615,6 +1418,113 @@ public class ArangoSinkConfig extends AbstractConfig {
                     ConfigDef.Width.SHORT,
                     RETRY_BACKOFF_MS_DISPLAY
             )
+            .define(
+                    MAX_DOCUMENT_RETRIES,
+                    ConfigDef.Type.INT,
+                    MAX_DOCUMENT_RETRIES_DEFAULT,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    MAX_DOCUMENT_RETRIES_DOC,
+                    RETRIES_GROUP,
+                    3,
+                    ConfigDef.Width.SHORT,
+                    MAX_DOCUMENT_RETRIES_DISPLAY
+            )
+            .define(
+                    DOCUMENT_RETRY_BACKOFF_MS,
+                    ConfigDef.Type.INT,
+                    DOCUMENT_RETRY_BACKOFF_MS_DEFAULT,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    DOCUMENT_RETRY_BACKOFF_MS_DOC,
+                    RETRIES_GROUP,
+                    4,
+                    ConfigDef.Width.SHORT,
+                    DOCUMENT_RETRY_BACKOFF_MS_DISPLAY
+            )
+            .define(
+                    RETRY_REWIND_ENABLED,
+                    ConfigDef.Type.BOOLEAN,
+                    RETRY_REWIND_ENABLED_DEFAULT,
+                    ConfigDef.Importance.LOW,
+                    RETRY_REWIND_ENABLED_DOC,
+                    RETRIES_GROUP,
+                    5,
+                    ConfigDef.Width.SHORT,
+                    RETRY_REWIND_ENABLED_DISPLAY
+            )
+            .define(
+                    RETRY_BACKOFF_STRATEGY,
+                    ConfigDef.Type.STRING,
+                    RETRY_BACKOFF_STRATEGY_DEFAULT,
+                    new EnumValidator(RetryBackoffStrategy.class),
+                    ConfigDef.Importance.LOW,
+                    RETRY_BACKOFF_STRATEGY_DOC,
+                    RETRIES_GROUP,
+                    6,
+                    ConfigDef.Width.SHORT,
+                    RETRY_BACKOFF_STRATEGY_DISPLAY,
+                    new EnumRecommender(RetryBackoffStrategy.class)
+            )
+            .define(
+                    RETRY_BACKOFF_MAX_MS,
+                    ConfigDef.Type.INT,
+                    RETRY_BACKOFF_MAX_MS_DEFAULT,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    RETRY_BACKOFF_MAX_MS_DOC,
+                    RETRIES_GROUP,
+                    7,
+                    ConfigDef.Width.SHORT,
+                    RETRY_BACKOFF_MAX_MS_DISPLAY
+            )
+            .define(
+                    RETRY_BUDGET_RATIO,
+                    ConfigDef.Type.DOUBLE,
+                    RETRY_BUDGET_RATIO_DEFAULT,
+                    ConfigDef.Range.between(0.0, 1.0),
+                    ConfigDef.Importance.LOW,
+                    RETRY_BUDGET_RATIO_DOC,
+                    RETRIES_GROUP,
+                    8,
+                    ConfigDef.Width.SHORT,
+                    RETRY_BUDGET_RATIO_DISPLAY
+            )
+            .define(
+                    CIRCUIT_BREAKER_ENABLED,
+                    ConfigDef.Type.BOOLEAN,
+                    CIRCUIT_BREAKER_ENABLED_DEFAULT,
+                    ConfigDef.Importance.LOW,
+                    CIRCUIT_BREAKER_ENABLED_DOC,
+                    RETRIES_GROUP,
+                    9,
+                    ConfigDef.Width.SHORT,
+                    CIRCUIT_BREAKER_ENABLED_DISPLAY
+            )
+            .define(
+                    CIRCUIT_BREAKER_FAILURE_THRESHOLD,
+                    ConfigDef.Type.INT,
+                    CIRCUIT_BREAKER_FAILURE_THRESHOLD_DEFAULT,
+                    ConfigDef.Range.atLeast(1),
+                    ConfigDef.Importance.LOW,
+                    CIRCUIT_BREAKER_FAILURE_THRESHOLD_DOC,
+                    RETRIES_GROUP,
+                    10,
+                    ConfigDef.Width.SHORT,
+                    CIRCUIT_BREAKER_FAILURE_THRESHOLD_DISPLAY
+            )
+            .define(
+                    CIRCUIT_BREAKER_OPEN_MS,
+                    ConfigDef.Type.INT,
+                    CIRCUIT_BREAKER_OPEN_MS_DEFAULT,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    CIRCUIT_BREAKER_OPEN_MS_DOC,
+                    RETRIES_GROUP,
+                    11,
+                    ConfigDef.Width.SHORT,
+                    CIRCUIT_BREAKER_OPEN_MS_DISPLAY
+            )
             //endregion
             ;
 
@@ -622,6 +1532,14 @@ public class ArangoSinkConfig extends AbstractConfig {
     public ArangoSinkConfig(Map<?, ?> props) {
         super(CONFIG_DEF, props);
         ensureValidSslConfig();
+        ensureValidCompactionConfig();
+        ensureValidCoalescingConfig();
+        ensureValidRoutingConfig();
+        ensureValidEdgeConfig();
+        ensureValidVersionConfig();
+        ensureValidExactlyOnceConfig();
+        ensureValidSilentConfig();
+        ensureValidAggregationConfig();
     }
 
     public Protocol getConnectionProtocol() {
@@ -685,6 +1603,95 @@ public class ArangoSinkConfig extends AbstractConfig {
                 .build();
     }
 
+    public String getCollection() {
+        return getString(CONNECTION_COLLECTION);
+    }
+
+    /**
+     * @return the target collections by topic
+     */
+    public Map<String, String> getTopicCollections() {
+        return parseMap(COLLECTION_TOPIC_MAP);
+    }
+
+    public String getCollectionRoutingField() {
+        return getString(COLLECTION_ROUTING_FIELD);
+    }
+
+    public String getCollectionRoutingHeader() {
+        return getString(COLLECTION_ROUTING_HEADER);
+    }
+
+    /**
+     * @return the target databases by topic
+     */
+    public Map<String, String> getTopicDatabases() {
+        return parseMap(DATABASE_TOPIC_MAP);
+    }
+
+    public String getDatabaseRoutingHeader() {
+        return getString(DATABASE_ROUTING_HEADER);
+    }
+
+    public String getEdgeFromField() {
+        return getString(EDGE_FROM_FIELD);
+    }
+
+    public String getEdgeFromCollection() {
+        return getString(EDGE_FROM_COLLECTION);
+    }
+
+    public String getEdgeToField() {
+        return getString(EDGE_TO_FIELD);
+    }
+
+    public String getEdgeToCollection() {
+        return getString(EDGE_TO_COLLECTION);
+    }
+
+    public boolean isEdgeVerticesEnabled() {
+        return getBoolean(EDGE_VERTICES_ENABLED);
+    }
+
+    public boolean isSilentEnabled() {
+        return getBoolean(WRITE_SILENT_ENABLED);
+    }
+
+    public boolean isExactlyOnceEnabled() {
+        return getBoolean(EXACTLY_ONCE_ENABLED);
+    }
+
+    public String getExactlyOnceOffsetsCollection() {
+        return getString(EXACTLY_ONCE_OFFSETS_COLLECTION);
+    }
+
+    /**
+     * @return the aggregated fields and their operators, in the configured order
+     */
+    public Map<String, AggregationOperator> getAggregationFields() {
+        Map<String, AggregationOperator> fields = new LinkedHashMap<>();
+        parseMap(AGGREGATION_FIELDS).forEach((field, operator) ->
+                fields.put(field, AggregationOperator.valueOf(operator.toUpperCase(Locale.ROOT))));
+        return fields;
+    }
+
+    public boolean isAggregationEnabled() {
+        return !getList(AGGREGATION_FIELDS).isEmpty();
+    }
+
+    public int getAggregationMaxKeys() {
+        return getInt(AGGREGATION_MAX_KEYS);
+    }
+
+    private Map<String, String> parseMap(String name) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (String entry : getList(name)) {
+            int separator = entry.lastIndexOf(':');
+            map.put(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+        }
+        return map;
+    }
+
     public ArangoCollection createCollection() {
         return createAdbBuilder()
                 .timeout(getInt(INSERT_TIMEOUT))
@@ -694,20 +1701,148 @@ public class ArangoSinkConfig extends AbstractConfig {
     }
 
     public DocumentCreateOptions getCreateOptions() {
-        return new DocumentCreateOptions()
+        DocumentCreateOptions options = new DocumentCreateOptions()
                 .overwriteMode(com.arangodb.model.OverwriteMode.valueOf(
                         getString(INSERT_OVERWRITE_MODE).toLowerCase(Locale.ROOT)
                 ))
                 .mergeObjects(getBoolean(INSERT_MERGE_OBJECTS))
                 .keepNull(true)
                 .refillIndexCaches(false)
+                .waitForSync(getBoolean(INSERT_WAIT_FOR_SYNC))
+                .versionAttribute(getVersionAttribute());
+        String maxQueueTime = getMaxQueueTimeHeader();
+        return maxQueueTime != null ? options.header(MAX_QUEUE_TIME_HEADER, maxQueueTime) : options;
+    }
+
+    public AqlQueryOptions getQueryOptions() {
+        AqlQueryOptions options = new AqlQueryOptions().usePlanCache(true);
+        String maxQueueTime = getMaxQueueTimeHeader();
+        return maxQueueTime != null ? options.header(MAX_QUEUE_TIME_HEADER, maxQueueTime) : options;
+    }
+
+    /**
+     * @return the value of the max queue time header in seconds, or {@code null} if not set
+     */
+    private String getMaxQueueTimeHeader() {
+        int maxQueueTimeMs = getInt(MAX_QUEUE_TIME_MS);
+        return maxQueueTimeMs > 0 ? String.valueOf(maxQueueTimeMs / 1000.0) : null;
+    }
+
+    /**
+     * @return the name of the document version attribute, or {@code null} if not set
+     */
+    public String getVersionAttribute() {
+        return getString(INSERT_VERSION_ATTRIBUTE);
+    }
+
+    public VersionSource getVersionSource() {
+        return VersionSource.valueOf(getString(INSERT_VERSION_SOURCE).toUpperCase(Locale.ROOT));
+    }
+
+    public WriteStrategy getWriteStrategy() {
+        return WriteStrategy.valueOf(getString(WRITE_STRATEGY).toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+
+    /**
+     * @return the AQL query writing the documents bound to {@code @docs}, for {@link WriteStrategy#AQL_UPSERT}
+     */
+    public String getUpsertQuery() {
+        String overwriteMode = getString(INSERT_OVERWRITE_MODE).toLowerCase(Locale.ROOT);
+        String updateExpression = getString(WRITE_AQL_UPDATE_EXPRESSION);
+        String options = "mergeObjects: " + getBoolean(INSERT_MERGE_OBJECTS)
+                + ", keepNull: true, refillIndexCaches: false, waitForSync: " + getBoolean(INSERT_WAIT_FOR_SYNC);
+        if (updateExpression == null) {
+            return "FOR d IN @docs INSERT d INTO @@collection "
+                    + "OPTIONS { overwriteMode: \"" + overwriteMode + "\", " + options + " }";
+        }
+        return "FOR d IN @docs UPSERT { _key: d._key } INSERT d UPDATE " + updateExpression + " IN @@collection "
+                + "OPTIONS { " + options + " }";
+    }
+
+    /**
+     * @return the AQL query combining the aggregated documents bound to {@code @docs} with the stored ones, so that
+     * concurrent writes of the same document are applied atomically by the server
+     */
+    public String getAggregationQuery() {
+        StringJoiner update = new StringJoiner(", ", "{ ", " }");
+        getAggregationFields().forEach((field, operator) -> {
+            String stored = "OLD.`" + field + "`";
+            String value = "d.`" + field + "`";
+            String expression;
+            switch (operator) {
+                case SUM:
+                case COUNT:
+                    expression = "TO_NUMBER(" + stored + ") + " + value;
+                    break;
+                case MIN:
+                    // MIN() and MAX() ignore null values
+                    expression = "MIN([" + stored + ", " + value + "])";
+                    break;
+                case MAX:
+                    expression = "MAX([" + stored + ", " + value + "])";
+                    break;
+                default:
+                    expression = value;
+            }
+            // fields missing in all the aggregated records are left untouched
+            update.add("`" + field + "`: HAS(d, \"" + field + "\") ? " + expression + " : " + stored);
+        });
+        return "FOR d IN @docs UPSERT { _key: d._key } INSERT d UPDATE " + update + " IN @@collection "
+                + "OPTIONS { keepNull: true, refillIndexCaches: false, waitForSync: " + getBoolean(INSERT_WAIT_FOR_SYNC) + " }";
+    }
+
+    /**
+     * @return the AQL query inserting the missing vertices of the edges bound to {@code @docs}, followed by the edges
+     * written with {@link #getUpsertQuery()}, so that a batch of edges and their vertices is written in a single request
+     */
+    public String getGraphQuery() {
+        String options = "OPTIONS { overwriteMode: \"ignore\", refillIndexCaches: false, waitForSync: "
+                + getBoolean(INSERT_WAIT_FOR_SYNC) + " }";
+        String from = getEdgeFromCollection();
+        String to = getEdgeToCollection();
+        // a collection can be modified only once in a query
+        String vertices = from.equals(to)
+                ? vertices("vertices", "UNION_DISTINCT(@docs[*]._from, @docs[*]._to)", from, options)
+                : vertices("fromVertices", "UNIQUE(@docs[*]._from)", from, options) + " "
+                + vertices("toVertices", "UNIQUE(@docs[*]._to)", to, options);
+        return vertices + " " + getUpsertQuery();
+    }
+
+    private static String vertices(String variable, String handles, String collection, String options) {
+        return "LET " + variable + " = (FOR v IN " + handles + " INSERT { _key: PARSE_IDENTIFIER(v).key } INTO `"
+                + collection + "` " + options + ")";
+    }
+
+    public DocumentImportOptions getImportOptions() {
+        OverwriteMode overwriteMode = OverwriteMode.valueOf(getString(INSERT_OVERWRITE_MODE).toUpperCase(Locale.ROOT));
+        DocumentImportOptions.OnDuplicate onDuplicate;
+        switch (overwriteMode) {
+            case IGNORE:
+                onDuplicate = DocumentImportOptions.OnDuplicate.ignore;
+                break;
+            case REPLACE:
+                onDuplicate = DocumentImportOptions.OnDuplicate.replace;
+                break;
+            case UPDATE:
+                onDuplicate = DocumentImportOptions.OnDuplicate.update;
+                break;
+            default:
+                onDuplicate = DocumentImportOptions.OnDuplicate.error;
+        }
+        DocumentImportOptions options = new DocumentImportOptions()
+                .onDuplicate(onDuplicate)
+                .details(true)
                 .waitForSync(getBoolean(INSERT_WAIT_FOR_SYNC));
+        String maxQueueTime = getMaxQueueTimeHeader();
+        return maxQueueTime != null ? options.header(MAX_QUEUE_TIME_HEADER, maxQueueTime) : options;
     }
 
     public DocumentDeleteOptions getDeleteOptions() {
-        return new DocumentDeleteOptions()
+        DocumentDeleteOptions options = new DocumentDeleteOptions()
                 .refillIndexCaches(false)
                 .waitForSync(getBoolean(INSERT_WAIT_FOR_SYNC));
+        String maxQueueTime = getMaxQueueTimeHeader();
+        return maxQueueTime != null ? options.header(MAX_QUEUE_TIME_HEADER, maxQueueTime) : options;
     }
 
     public int getBatchSize() {
@@ -718,6 +1853,66 @@ public class ArangoSinkConfig extends AbstractConfig {
         return getBoolean(DELETE_ENABLED);
     }
 
+    public boolean isAdaptiveBatchSizeEnabled() {
+        return getBoolean(BATCH_ADAPTIVE_ENABLED);
+    }
+
+    public int getAdaptiveBatchMinSize() {
+        return Math.min(getInt(BATCH_ADAPTIVE_MIN_SIZE), getBatchSize());
+    }
+
+    public int getBatchLingerMs() {
+        return getInt(BATCH_LINGER_MS);
+    }
+
+    public int getBackpressureQueueTimeMs() {
+        return getInt(BACKPRESSURE_QUEUE_TIME_MS);
+    }
+
+    public int getBackpressureMaxDelayMs() {
+        return getInt(BACKPRESSURE_MAX_DELAY_MS);
+    }
+
+    public double getRateLimitDocsPerSec() {
+        return getDouble(RATE_LIMIT_DOCS_PER_SEC);
+    }
+
+    public double getRateLimitBytesPerSec() {
+        return getDouble(RATE_LIMIT_BYTES_PER_SEC);
+    }
+
+    public int getBatchMaxBytes() {
+        return getInt(BATCH_MAX_BYTES);
+    }
+
+    public int getMaxInFlightBatches() {
+        return getInt(MAX_IN_FLIGHT_BATCHES);
+    }
+
+    public int getWriteLanes() {
+        return getInt(WRITE_LANES);
+    }
+
+    public boolean isMixedBatchesEnabled() {
+        return getBoolean(BATCH_MIXED_ENABLED);
+    }
+
+    public boolean isCompactionEnabled() {
+        return getBoolean(WRITE_COMPACTION_ENABLED);
+    }
+
+    public boolean isCoalescingEnabled() {
+        return getBoolean(WRITE_COALESCING_ENABLED);
+    }
+
+    public boolean isMergeObjects() {
+        return getBoolean(INSERT_MERGE_OBJECTS);
+    }
+
+    public LanesRouting getWriteLanesRouting() {
+        return LanesRouting.valueOf(getString(WRITE_LANES_ROUTING).toUpperCase(Locale.ROOT));
+    }
+
     public int getMaxRetries() {
         return getInt(MAX_RETRIES);
     }
@@ -726,6 +1921,42 @@ public class ArangoSinkConfig extends AbstractConfig {
         return getInt(RETRY_BACKOFF_MS);
     }
 
+    public int getMaxDocumentRetries() {
+        return getInt(MAX_DOCUMENT_RETRIES);
+    }
+
+    public int getDocumentRetryBackoffMs() {
+        return getInt(DOCUMENT_RETRY_BACKOFF_MS);
+    }
+
+    public boolean isRetryRewindEnabled() {
+        return getBoolean(RETRY_REWIND_ENABLED);
+    }
+
+    public RetryBackoffStrategy getRetryBackoffStrategy() {
+        return RetryBackoffStrategy.valueOf(getString(RETRY_BACKOFF_STRATEGY).toUpperCase(Locale.ROOT));
+    }
+
+    public int getRetryBackoffMaxMs() {
+        return getInt(RETRY_BACKOFF_MAX_MS);
+    }
+
+    public double getRetryBudgetRatio() {
+        return getDouble(RETRY_BUDGET_RATIO);
+    }
+
+    public boolean isCircuitBreakerEnabled() {
+        return getBoolean(CIRCUIT_BREAKER_ENABLED);
+    }
+
+    public int getCircuitBreakerFailureThreshold() {
+        return getInt(CIRCUIT_BREAKER_FAILURE_THRESHOLD);
+    }
+
+    public int getCircuitBreakerOpenMs() {
+        return getInt(CIRCUIT_BREAKER_OPEN_MS);
+    }
+
     public boolean getTolerateDataErrors() {
         DataErrorsTolerance value = DataErrorsTolerance.valueOf(
                 getString(DATA_ERRORS_TOLERANCE).toUpperCase(Locale.ROOT));
@@ -772,4 +2003,190 @@ public class ArangoSinkConfig extends AbstractConfig {
         }
     }
 
+    private void ensureValidRoutingConfig() {
+        ensureValidMap(COLLECTION_TOPIC_MAP, "Expected format: <topic>:<collection>");
+        ensureValidMap(DATABASE_TOPIC_MAP, "Expected format: <topic>:<database>");
+        // tombstones have no value to read the routing field from, so they would be deleted from another collection
+        if (isDeleteEnabled() && getString(COLLECTION_ROUTING_FIELD) != null) {
+            throw new ConfigException("Cannot set both [" + DELETE_ENABLED + "=true] and " + COLLECTION_ROUTING_FIELD);
+        }
+    }
+
+    private void ensureValidEdgeConfig() {
+        String from = getString(EDGE_FROM_FIELD);
+        String to = getString(EDGE_TO_FIELD);
+        if ((from == null) != (to == null)) {
+            throw new ConfigException("Both or none of " + EDGE_FROM_FIELD + " and " + EDGE_TO_FIELD + " must be set");
+        }
+        if (from == null && (getString(EDGE_FROM_COLLECTION) != null || getString(EDGE_TO_COLLECTION) != null)) {
+            throw new ConfigException(EDGE_FROM_COLLECTION + " and " + EDGE_TO_COLLECTION + " require "
+                    + EDGE_FROM_FIELD + " and " + EDGE_TO_FIELD);
+        }
+        if (!isEdgeVerticesEnabled()) {
+            return;
+        }
+        // the vertex collections are named in the generated query
+        for (String name : Arrays.asList(EDGE_FROM_COLLECTION, EDGE_TO_COLLECTION)) {
+            String collection = getString(name);
+            if (collection == null || !collection.matches("[a-zA-Z0-9_\\-]+")) {
+                throw new ConfigException(name, collection,
+                        "[" + EDGE_VERTICES_ENABLED + "=true] requires a vertex collection name");
+            }
+        }
+        if (WriteStrategy.IMPORT.equals(getWriteStrategy())) {
+            throw new ConfigException("[" + EDGE_VERTICES_ENABLED + "=true] is not supported with [" + WRITE_STRATEGY + "=import]");
+        }
+        if (isAggregationEnabled()) {
+            throw new ConfigException("Cannot set both " + EDGE_VERTICES_ENABLED + " and " + AGGREGATION_FIELDS);
+        }
+        // the graph query is not part of the stream transactions
+        if (isExactlyOnceEnabled()) {
+            throw new ConfigException("Cannot set both " + EDGE_VERTICES_ENABLED + " and " + EXACTLY_ONCE_ENABLED);
+        }
+    }
+
+    private void ensureValidMap(String name, String message) {
+        for (String entry : getList(name)) {
+            int separator = entry.lastIndexOf(':');
+            if (separator <= 0 || separator == entry.length() - 1) {
+                throw new ConfigException(name, entry, message);
+            }
+        }
+    }
+
+    private void ensureValidVersionConfig() {
+        if (getVersionAttribute() == null) {
+            return;
+        }
+        String overwriteMode = getString(INSERT_OVERWRITE_MODE);
+        if (!OverwriteMode.REPLACE.toString().equalsIgnoreCase(overwriteMode)
+                && !OverwriteMode.UPDATE.toString().equalsIgnoreCase(overwriteMode)) {
+            throw new ConfigException("[" + INSERT_VERSION_ATTRIBUTE + "] requires [" + INSERT_OVERWRITE_MODE + "=replace] " +
+                    "or [" + INSERT_OVERWRITE_MODE + "=update], got [" + overwriteMode + "]");
+        }
+        if (!WriteStrategy.DOCUMENT.equals(getWriteStrategy())) {
+            throw new ConfigException("[" + INSERT_VERSION_ATTRIBUTE + "] requires [" + WRITE_STRATEGY + "=document], " +
+                    "got [" + getString(WRITE_STRATEGY) + "]");
+        }
+        // written by AQL queries, which do not support the version attribute
+        if (isAggregationEnabled() || isEdgeVerticesEnabled()) {
+            throw new ConfigException("Cannot set both " + INSERT_VERSION_ATTRIBUTE + " and "
+                    + AGGREGATION_FIELDS + " or " + EDGE_VERTICES_ENABLED);
+        }
+    }
+
+    private void ensureValidExactlyOnceConfig() {
+        if (!isExactlyOnceEnabled()) {
+            return;
+        }
+        if (!WriteStrategy.DOCUMENT.equals(getWriteStrategy())) {
+            throw new ConfigException("[" + EXACTLY_ONCE_ENABLED + "=true] requires [" + WRITE_STRATEGY + "=document], " +
+                    "got [" + getString(WRITE_STRATEGY) + "]");
+        }
+        // requests within a stream transaction cannot be concurrent
+        if (getMaxInFlightBatches() > 0 || isMixedBatchesEnabled()) {
+            throw new ConfigException("[" + EXACTLY_ONCE_ENABLED + "=true] requires [" + MAX_IN_FLIGHT_BATCHES + "=0] " +
+                    "and [" + BATCH_MIXED_ENABLED + "=false]");
+        }
+        // the offsets of a partition are tracked by a single lane
+        if (getWriteLanes() > 1 && LanesRouting.KEY.equals(getWriteLanesRouting())) {
+            throw new ConfigException("[" + EXACTLY_ONCE_ENABLED + "=true] requires [" + WRITE_LANES_ROUTING + "=partition]");
+        }
+        // stream transactions and the offsets collection are bound to the default database
+        if (!getTopicDatabases().isEmpty() || getDatabaseRoutingHeader() != null) {
+            throw new ConfigException("Cannot set both " + EXACTLY_ONCE_ENABLED + " and database routing");
+        }
+        // a single stored offset per partition requires its records to be written in order, while grouping the records
+        // by target collection or merging them moves them after the following records
+        if (getCollectionRoutingField() != null || getCollectionRoutingHeader() != null) {
+            throw new ConfigException("Cannot set both " + EXACTLY_ONCE_ENABLED + " and "
+                    + COLLECTION_ROUTING_FIELD + " or " + COLLECTION_ROUTING_HEADER);
+        }
+        if (isCoalescingEnabled()) {
+            throw new ConfigException("Cannot set both " + EXACTLY_ONCE_ENABLED + " and " + WRITE_COALESCING_ENABLED);
+        }
+    }
+
+    private void ensureValidSilentConfig() {
+        if (!isSilentEnabled()) {
+            return;
+        }
+        if (!WriteStrategy.DOCUMENT.equals(getWriteStrategy())) {
+            throw new ConfigException("[" + WRITE_SILENT_ENABLED + "=true] requires [" + WRITE_STRATEGY + "=document], " +
+                    "got [" + getString(WRITE_STRATEGY) + "]");
+        }
+        String overwriteMode = getString(INSERT_OVERWRITE_MODE);
+        if (OverwriteMode.CONFLICT.toString().equalsIgnoreCase(overwriteMode)) {
+            throw new ConfigException("[" + WRITE_SILENT_ENABLED + "=true] requires [" + INSERT_OVERWRITE_MODE + "] " +
+                    "other than [conflict]");
+        }
+    }
+
+    private void ensureValidCoalescingConfig() {
+        if (!isCoalescingEnabled()) {
+            return;
+        }
+        String overwriteMode = getString(INSERT_OVERWRITE_MODE);
+        if (!OverwriteMode.UPDATE.toString().equalsIgnoreCase(overwriteMode)) {
+            throw new ConfigException("[" + WRITE_COALESCING_ENABLED + "=true] requires [" + INSERT_OVERWRITE_MODE + "=update], " +
+                    "got [" + overwriteMode + "]");
+        }
+        if (getString(WRITE_AQL_UPDATE_EXPRESSION) != null) {
+            throw new ConfigException("Cannot set both " + WRITE_COALESCING_ENABLED + " and " + WRITE_AQL_UPDATE_EXPRESSION);
+        }
+        // the import API does not support mergeObjects
+        if (WriteStrategy.IMPORT.equals(getWriteStrategy())) {
+            throw new ConfigException("[" + WRITE_COALESCING_ENABLED + "=true] is not supported with [" + WRITE_STRATEGY + "=import]");
+        }
+    }
+
+    private void ensureValidAggregationConfig() {
+        ensureValidMap(AGGREGATION_FIELDS, "Expected format: <field>:<operator>");
+        if (!isAggregationEnabled()) {
+            return;
+        }
+        Set<String> operators = Arrays.stream(AggregationOperator.values())
+                .map(it -> it.toString().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        parseMap(AGGREGATION_FIELDS).forEach((field, operator) -> {
+            // field names are quoted in the generated query
+            if (!field.matches("[a-zA-Z0-9_\\-]+")) {
+                throw new ConfigException(AGGREGATION_FIELDS, field, "Expected a top level field name");
+            }
+            if (!operators.contains(operator.toLowerCase(Locale.ROOT))) {
+                throw new ConfigException(AGGREGATION_FIELDS, operator, "Expected one of: " + operators);
+            }
+        });
+        if (isCompactionEnabled() || isCoalescingEnabled()) {
+            throw new ConfigException("Cannot set both " + AGGREGATION_FIELDS + " and "
+                    + WRITE_COMPACTION_ENABLED + " or " + WRITE_COALESCING_ENABLED);
+        }
+        if (getString(WRITE_AQL_UPDATE_EXPRESSION) != null) {
+            throw new ConfigException("Cannot set both " + AGGREGATION_FIELDS + " and " + WRITE_AQL_UPDATE_EXPRESSION);
+        }
+        // the accumulated documents already span multiple polls
+        if (getBatchLingerMs() > 0) {
+            throw new ConfigException("[" + AGGREGATION_FIELDS + "] requires [" + BATCH_LINGER_MS + "=0], " +
+                    "got [" + getBatchLingerMs() + "]");
+        }
+        // the aggregation query is not part of the stream transactions
+        if (isExactlyOnceEnabled()) {
+            throw new ConfigException("Cannot set both " + AGGREGATION_FIELDS + " and " + EXACTLY_ONCE_ENABLED);
+        }
+    }
+
+    private void ensureValidCompactionConfig() {
+        if (!isCompactionEnabled()) {
+            return;
+        }
+        String overwriteMode = getString(INSERT_OVERWRITE_MODE);
+        if (!OverwriteMode.REPLACE.toString().equalsIgnoreCase(overwriteMode)) {
+            throw new ConfigException("[" + WRITE_COMPACTION_ENABLED + "=true] requires [" + INSERT_OVERWRITE_MODE + "=replace], " +
+                    "got [" + overwriteMode + "]");
+        }
+        if (getString(WRITE_AQL_UPDATE_EXPRESSION) != null) {
+            throw new ConfigException("Cannot set both " + WRITE_COMPACTION_ENABLED + " and " + WRITE_AQL_UPDATE_EXPRESSION);
+        }
+    }
+
 }
@@ -17,7 +17,7 @@ public class EnumValidator implements ConfigDef.Validator {
     public void ensureValid(String name, Object value) {
         try {
             //noinspection unchecked
-            Enum.valueOf(enumClass, ((String) value).toUpperCase(Locale.ROOT));
+            Enum.valueOf(enumClass, ((String) value).toUpperCase(Locale.ROOT).replace('-', '_'));
         } catch (IllegalArgumentException e) {
             throw new ConfigException("Invalid value '" + value + "' for config key '" + name + "'" +
                     "; must be one of " + Arrays.toString(enumClass.getEnumConstants()));
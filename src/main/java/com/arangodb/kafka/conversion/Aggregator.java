@@ -0,0 +1,120 @@
+/*
+ * Copyright 2023 ArangoDB GmbH, Cologne, Germany
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Copyright holder is ArangoDB GmbH, Cologne, Germany
+ */
+
+package com.arangodb.kafka.conversion;
+
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.config.ArangoSinkConfig.AggregationOperator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.kafka.connect.errors.DataException;
+
+import java.util.Map;
+
+/**
+ * Accumulates the configured fields of the documents with the same key, so that they can be combined with the stored
+ * document by a single write.
+ */
+public class Aggregator {
+    private final Map<String, AggregationOperator> fields;
+
+    public Aggregator(ArangoSinkConfig config) {
+        fields = config.getAggregationFields();
+    }
+
+    /**
+     * @return whether the documents are aggregated
+     */
+    public boolean isEnabled() {
+        return !fields.isEmpty();
+    }
+
+    /**
+     * @return the accumulator of the given document, holding its key and the aggregated fields
+     * @throws DataException if an aggregated field cannot be combined with the operator
+     */
+    public ObjectNode init(ObjectNode doc) {
+        ObjectNode acc = JsonNodeFactory.instance.objectNode();
+        acc.set("_key", doc.get("_key"));
+        fields.forEach((field, operator) -> {
+            if (AggregationOperator.COUNT.equals(operator)) {
+                acc.put(field, 1L);
+                return;
+            }
+            JsonNode value = doc.get(field);
+            if (value == null || value.isNull()) {
+                return;
+            }
+            if (!AggregationOperator.LAST.equals(operator) && !value.isNumber()) {
+                throw new DataException("Aggregated field " + field + " is not a number: " + value.getNodeType());
+            }
+            acc.set(field, value);
+        });
+        return acc;
+    }
+
+    /**
+     * Combines the accumulator of a later document with the same key into the given one.
+     */
+    public void merge(ObjectNode acc, ObjectNode next) {
+        fields.forEach((field, operator) -> {
+            JsonNode value = next.get(field);
+            JsonNode current = acc.get(field);
+            if (value == null) {
+                return;
+            }
+            if (current == null) {
+                acc.set(field, value);
+                return;
+            }
+            switch (operator) {
+                case SUM:
+                case COUNT:
+                    acc.set(field, sum(current, value));
+                    break;
+                case MIN:
+                    if (compare(value, current) < 0) {
+                        acc.set(field, value);
+                    }
+                    break;
+                case MAX:
+                    if (compare(value, current) > 0) {
+                        acc.set(field, value);
+                    }
+                    break;
+                default:
+                    acc.set(field, value);
+            }
+        });
+    }
+
+    private static JsonNode sum(JsonNode a, JsonNode b) {
+        if (a.isIntegralNumber() && b.isIntegralNumber() && a.canConvertToLong() && b.canConvertToLong()) {
+            return JsonNodeFactory.instance.numberNode(a.longValue() + b.longValue());
+        }
+        return JsonNodeFactory.instance.numberNode(a.doubleValue() + b.doubleValue());
+    }
+
+    private static int compare(JsonNode a, JsonNode b) {
+        if (a.isIntegralNumber() && b.isIntegralNumber() && a.canConvertToLong() && b.canConvertToLong()) {
+            return Long.compare(a.longValue(), b.longValue());
+        }
+        return Double.compare(a.doubleValue(), b.doubleValue());
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2023 ArangoDB GmbH, Cologne, Germany
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Copyright holder is ArangoDB GmbH, Cologne, Germany
+ */
+
+
+package com.arangodb.kafka.conversion;
+
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.kafka.connect.errors.DataException;
+
+/**
+ * Derives the {@code _from} and {@code _to} attributes of edge documents from the configured record value fields,
+ * validating them before the documents are sent to the database.
+ */
+public class EdgeConverter {
+    private final String[] fromField;
+    private final String fromCollection;
+    private final String[] toField;
+    private final String toCollection;
+
+    public EdgeConverter(ArangoSinkConfig config) {
+        fromField = path(config.getEdgeFromField());
+        fromCollection = config.getEdgeFromCollection();
+        toField = path(config.getEdgeToField());
+        toCollection = config.getEdgeToCollection();
+    }
+
+    /**
+     * @return whether the records are written as edges
+     */
+    public boolean isEnabled() {
+        return fromField != null && toField != null;
+    }
+
+    /**
+     * Sets {@code _from} and {@code _to} of the given document.
+     *
+     * @throws DataException if the vertices cannot be derived from the document
+     */
+    public void convert(ObjectNode doc) {
+        String from = handle(doc, fromField, fromCollection, "_from");
+        String to = handle(doc, toField, toCollection, "_to");
+        doc.put("_from", from);
+        doc.put("_to", to);
+    }
+
+    private static String handle(ObjectNode doc, String[] field, String collection, String attribute) {
+        JsonNode node = doc;
+        for (String name : field) {
+            node = node.get(name);
+            if (node == null || node.isNull()) {
+                throw new DataException("Missing " + attribute + " field: " + String.join(".", field));
+            }
+        }
+        String value = KeyConverter.mapKey(node);
+        if (value == null || value.isEmpty()) {
+            throw new DataException("Missing " + attribute + " field: " + String.join(".", field));
+        }
+        if (collection != null) {
+            if (value.indexOf('/') >= 0) {
+                throw new DataException("Invalid " + attribute + " key: " + value);
+            }
+            return collection + "/" + value;
+        }
+        int separator = value.indexOf('/');
+        if (separator <= 0 || separator == value.length() - 1 || value.indexOf('/', separator + 1) >= 0) {
+            throw new DataException("Invalid " + attribute + " document handle: " + value);
+        }
+        return value;
+    }
+
+    private static String[] path(String field) {
+        return field != null ? field.split("\\.") : null;
+    }
+}
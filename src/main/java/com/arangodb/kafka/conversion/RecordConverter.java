@@ -41,9 +41,19 @@ public class RecordConverter {
     private final JsonDeserializer deserializer;
     private final JsonConverter jsonConverter;
     private final KeyConverter keyConverter;
+    // null if the records are not written as edges
+    private final EdgeConverter edgeConverter;
+    // null if the version attribute is not set by the connector
+    private final VersionConverter versionConverter;
 
     public RecordConverter(KeyConverter keyConverter) {
+        this(keyConverter, null, null);
+    }
+
+    public RecordConverter(KeyConverter keyConverter, EdgeConverter edgeConverter, VersionConverter versionConverter) {
         this.keyConverter = keyConverter;
+        this.edgeConverter = edgeConverter;
+        this.versionConverter = versionConverter;
         deserializer = new JsonDeserializer();
         jsonConverter = new JsonConverter();
         Map<String, Object> converterConfig = new HashMap<>();
@@ -65,6 +75,12 @@ public class RecordConverter {
         String keyFromField = KeyConverter.mapKey(data.get("_key"));
         String key = keyFromField != null ? keyFromField : keyConverter.convert(record);
         data.put("_key", key);
+        if (edgeConverter != null) {
+            edgeConverter.convert(data);
+        }
+        if (versionConverter != null) {
+            versionConverter.convert(record, data);
+        }
         LOG.debug("Converted record value: {}", data);
         return data;
     }
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2023 ArangoDB GmbH, Cologne, Germany
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Copyright holder is ArangoDB GmbH, Cologne, Germany
+ */
+
+
+package com.arangodb.kafka.conversion;
+
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.header.Header;
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Resolves the target collection of the records, in order of precedence:
+ * <ul>
+ *     <li>from the routing header</li>
+ *     <li>from the routing field of the record value</li>
+ *     <li>from the topic to collection mapping</li>
+ *     <li>from the collection name template, where {@value #TOPIC_PLACEHOLDER} is replaced with the record topic</li>
+ * </ul>
+ * The target database is resolved from the database routing header or from the topic to database mapping, falling back
+ * to the default database.
+ */
+public class TargetRouter {
+    public static final String TOPIC_PLACEHOLDER = "${topic}";
+
+    private final String collection;
+    private final Map<String, String> topicCollections;
+    private final String routingHeader;
+    private final String[] routingField;
+    private final Map<String, String> topicDatabases;
+    private final String databaseRoutingHeader;
+
+    public TargetRouter(ArangoSinkConfig config) {
+        collection = config.getCollection();
+        topicCollections = config.getTopicCollections();
+        routingHeader = config.getCollectionRoutingHeader();
+        String field = config.getCollectionRoutingField();
+        routingField = field != null ? field.split("\\.") : null;
+        topicDatabases = config.getTopicDatabases();
+        databaseRoutingHeader = config.getDatabaseRoutingHeader();
+    }
+
+    /**
+     * @return whether records can be written to different collections or databases
+     */
+    public boolean isEnabled() {
+        return !topicCollections.isEmpty() || collection.contains(TOPIC_PLACEHOLDER)
+                || routingHeader != null || routingField != null
+                || isDatabaseRoutingEnabled();
+    }
+
+    /**
+     * @return whether records can be written to different databases
+     */
+    public boolean isDatabaseRoutingEnabled() {
+        return !topicDatabases.isEmpty() || databaseRoutingHeader != null;
+    }
+
+    /**
+     * @param record the record
+     * @return the target database, or {@code null} for the default database
+     */
+    public String database(SinkRecord record) {
+        String routed = fromHeader(record, databaseRoutingHeader);
+        if (routed != null) {
+            return routed;
+        }
+        return topicDatabases.get(record.topic());
+    }
+
+    /**
+     * @param record the record
+     * @param value  the converted record value, or {@code null} for deletes
+     * @return the target collection
+     */
+    public String collection(SinkRecord record, ObjectNode value) {
+        String routed = fromHeader(record, routingHeader);
+        if (routed == null && value != null) {
+            routed = fromField(value);
+        }
+        if (routed != null) {
+            return sanitize(routed);
+        }
+        String mapped = topicCollections.get(record.topic());
+        if (mapped != null) {
+            return mapped;
+        }
+        return collection.replace(TOPIC_PLACEHOLDER, sanitize(record.topic()));
+    }
+
+    /**
+     * @param record the record
+     * @param value  the converted record value, or {@code null} for deletes
+     * @return whether the target database or collection is read from the record headers or value, rather than from
+     * the configuration
+     */
+    public boolean isRoutedByRecord(SinkRecord record, ObjectNode value) {
+        return fromHeader(record, databaseRoutingHeader) != null || fromHeader(record, routingHeader) != null
+                || (value != null && fromField(value) != null);
+    }
+
+    private static String fromHeader(SinkRecord record, String name) {
+        if (name == null) {
+            return null;
+        }
+        Header header = record.headers().lastWithName(name);
+        if (header == null || header.value() == null) {
+            return null;
+        }
+        Object value = header.value();
+        if (value instanceof byte[]) {
+            return new String((byte[]) value, StandardCharsets.UTF_8);
+        }
+        return value.toString();
+    }
+
+    private String fromField(ObjectNode value) {
+        if (routingField == null) {
+            return null;
+        }
+        JsonNode node = value;
+        for (String name : routingField) {
+            node = node.get(name);
+            if (node == null || node.isNull()) {
+                return null;
+            }
+        }
+        if (!node.isValueNode()) {
+            throw new DataException("Routing field value cannot be read as string: " + node.getNodeType());
+        }
+        return node.asText();
+    }
+
+    /**
+     * Replaces the characters not allowed in collection names, e.g. the dots in topic names.
+     */
+    private static String sanitize(String name) {
+        return name.replaceAll("[^a-zA-Z0-9_\\-]", "_");
+    }
+}
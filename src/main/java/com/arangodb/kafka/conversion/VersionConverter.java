@@ -0,0 +1,63 @@
+/*
+ * Copyright 2023 ArangoDB GmbH, Cologne, Germany
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Copyright holder is ArangoDB GmbH, Cologne, Germany
+ */
+
+
+package com.arangodb.kafka.conversion;
+
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.config.ArangoSinkConfig.VersionSource;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.SinkRecord;
+
+/**
+ * Sets the version attribute of the documents from the record metadata, so that the server can discard the writes of
+ * stale documents.
+ */
+public class VersionConverter {
+    private final String attribute;
+    private final VersionSource source;
+
+    public VersionConverter(ArangoSinkConfig config) {
+        attribute = config.getVersionAttribute();
+        source = config.getVersionSource();
+    }
+
+    /**
+     * @return whether the version is set by the connector, rather than read from the record value
+     */
+    public boolean isEnabled() {
+        return attribute != null && !VersionSource.FIELD.equals(source);
+    }
+
+    /**
+     * Sets the version attribute of the given document.
+     *
+     * @throws DataException if the version cannot be derived from the record
+     */
+    public void convert(SinkRecord record, ObjectNode doc) {
+        if (VersionSource.OFFSET.equals(source)) {
+            doc.put(attribute, record.kafkaOffset());
+        } else {
+            if (record.timestamp() == null) {
+                throw new DataException("Missing record timestamp for version attribute: " + attribute);
+            }
+            doc.put(attribute, record.timestamp());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.arangodb.kafka;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveBatchSizeTest {
+
+    @Test
+    void transientErrorsShouldHalveSize() {
+        AdaptiveBatchSize size = new AdaptiveBatchSize(100, 1000);
+        assertThat(size.size()).isEqualTo(1000);
+        size.onTransientError();
+        assertThat(size.size()).isEqualTo(500);
+        size.onTransientError();
+        size.onTransientError();
+        size.onTransientError();
+        assertThat(size.size()).isEqualTo(100);
+    }
+
+    @Test
+    void sizeShouldGrowWhileLatencyDoesNotGetWorse() {
+        AdaptiveBatchSize size = new AdaptiveBatchSize(100, 1000);
+        size.onTransientError();
+        int initial = size.size();
+        for (int i = 0; i < 5; i++) {
+            size.onSuccess(size.size(), size.size() * 1_000L);
+        }
+        assertThat(size.size()).isGreaterThan(initial);
+
+        int grown = size.size();
+        size.onSuccess(size.size(), size.size() * 10_000L);
+        assertThat(size.size()).isLessThan(grown);
+    }
+
+    @Test
+    void smallBatchesShouldBeIgnored() {
+        AdaptiveBatchSize size = new AdaptiveBatchSize(100, 1000);
+        size.onTransientError();
+        size.onSuccess(500, 500_000L);
+        size.onSuccess(10, 1L);
+        assertThat(size.size()).isEqualTo(500);
+    }
+
+}
@@ -0,0 +1,201 @@
+package com.arangodb.kafka;
+
+import com.arangodb.ArangoCollection;
+import com.arangodb.ArangoDBException;
+import com.arangodb.ArangoDatabase;
+import com.arangodb.entity.DocumentDeleteEntity;
+import com.arangodb.entity.MultiDocumentEntity;
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.utils.MockTest;
+import com.arangodb.kafka.utils.Utils;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import deployment.ArangoDbDeployment;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.ErrantRecordReporter;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.arangodb.kafka.config.ArangoSinkConfig.*;
+import static com.arangodb.kafka.utils.Utils.map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@MockTest
+class AggregationTest {
+    private final TopicPartition tp = new TopicPartition("topic", 1);
+    private final List<SinkRecord> records = Arrays.asList(
+            new SinkRecord("topic", 1, null, "a", null, map().add("views", 1).add("latency", 30).add("page", "x"), 0),
+            new SinkRecord("topic", 1, null, "b", null, map().add("views", 2).add("latency", 10), 1),
+            new SinkRecord("topic", 1, null, "a", null, map().add("views", 3).add("latency", 20).add("page", "y"), 2),
+            new SinkRecord("topic", 1, null, "a", null, map().add("latency", 50), 3)
+    );
+
+    private Utils.FluentMap<String, Object> config() {
+        return map()
+                .add(CONNECTION_ENDPOINTS, ArangoDbDeployment.getInstance().getEndpoints())
+                .add(CONNECTION_COLLECTION, "AggregationTest")
+                .add(DELETE_ENABLED, "true")
+                .add(DATA_ERRORS_TOLERANCE, DataErrorsTolerance.ALL.toString())
+                .add(AGGREGATION_FIELDS, "views:sum,latency:min,peak:max,page:last,events:count");
+    }
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    ArangoCollection col;
+
+    @Mock
+    ErrantRecordReporter reporter;
+
+    @Mock
+    SinkTaskContext context;
+
+    @BeforeEach
+    void setup() {
+        Mockito.when(context.errantRecordReporter()).thenReturn(reporter);
+    }
+
+    @Test
+    void recordsShouldBeAggregatedUntilPreCommit() {
+        ArangoDatabase db = col.db();
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        writer.put(records);
+        verify(db, never()).query(anyString(), any(), anyMap(), any());
+
+        Map<TopicPartition, OffsetAndMetadata> offsets = Collections.singletonMap(tp, new OffsetAndMetadata(4));
+        assertThat(writer.preCommit(offsets)).isEqualTo(offsets);
+
+        Map<String, ObjectNode> docs = aggregatedDocs(db);
+        assertThat(docs).containsOnlyKeys("a", "b");
+        ObjectNode a = docs.get("a");
+        assertThat(a.get("views").longValue()).isEqualTo(4);
+        assertThat(a.get("latency").longValue()).isEqualTo(20);
+        assertThat(a.has("peak")).isFalse();
+        assertThat(a.get("page").textValue()).isEqualTo("y");
+        assertThat(a.get("events").longValue()).isEqualTo(3);
+        assertThat(docs.get("b").get("events").longValue()).isEqualTo(1);
+
+        writer.preCommit(offsets);
+        verify(db, times(1)).query(anyString(), any(), anyMap(), any());
+    }
+
+    @Test
+    void deletesShouldDiscardTheAggregatedValues() {
+        MultiDocumentEntity<DocumentDeleteEntity<Void>> deleteRes = new MultiDocumentEntity<>();
+        deleteRes.setDocumentsAndErrors(Collections.singletonList(new Object()));
+        deleteRes.setErrors(Collections.emptyList());
+        Mockito.when(col.deleteDocuments(anyIterable(), any())).thenReturn(deleteRes);
+        ArangoDatabase db = col.db();
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        writer.put(records);
+        writer.put(Collections.singletonList(new SinkRecord("topic", 1, null, "b", null, null, 4)));
+        verify(col, times(1)).deleteDocuments(anyIterable(), any());
+
+        writer.preCommit(Collections.singletonMap(tp, new OffsetAndMetadata(5)));
+        assertThat(aggregatedDocs(db)).containsOnlyKeys("a");
+    }
+
+    @Test
+    void nonNumericValuesShouldBeReported() {
+        ArangoDatabase db = col.db();
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        SinkRecord bad = new SinkRecord("topic", 1, null, "c", null, map().add("views", "many"), 4);
+        List<SinkRecord> batch = new ArrayList<>(records);
+        batch.add(bad);
+        writer.put(batch);
+        verify(reporter, times(1)).report(refEq(bad), argThat(e -> {
+            assertThat(e)
+                    .isInstanceOf(DataException.class)
+                    .hasMessageContaining("Aggregated field views is not a number");
+            return true;
+        }));
+
+        writer.preCommit(Collections.singletonMap(tp, new OffsetAndMetadata(5)));
+        Map<String, ObjectNode> docs = aggregatedDocs(db);
+        assertThat(docs).containsOnlyKeys("a", "b");
+        assertThat(docs.get("a").get("views").longValue()).isEqualTo(4);
+    }
+
+    @Test
+    void nonNumericValuesToleranceNoneShouldThrowDataException() {
+        ArangoDatabase db = col.db();
+        Map<String, Object> cfg = config().add(DATA_ERRORS_TOLERANCE, DataErrorsTolerance.NONE.toString());
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(cfg), col, context);
+        SinkRecord bad = new SinkRecord("topic", 1, null, "c", null, map().add("views", "many"), 4);
+
+        Throwable thrown = catchThrowable(() -> writer.put(Collections.singletonList(bad)));
+        assertThat(thrown)
+                .isInstanceOf(DataException.class)
+                .hasMessageContaining("Aggregated field views is not a number");
+        verify(reporter, never()).report(any(), any());
+
+        writer.preCommit(Collections.singletonMap(tp, new OffsetAndMetadata(5)));
+        verify(db, never()).query(anyString(), any(), anyMap(), any());
+    }
+
+    @Test
+    void aggregatesShouldBeWrittenWhenMaxKeysIsReached() {
+        ArangoDatabase db = col.db();
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config().add(AGGREGATION_MAX_KEYS, 2)), col, context);
+        writer.put(records);
+        assertThat(aggregatedDocs(db)).containsOnlyKeys("a", "b");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedAccumulatorsShouldBeRetainedForTheNextFlush() {
+        ArangoDatabase db = col.db();
+        List<String> written = new ArrayList<>();
+        Mockito.when(db.query(anyString(), any(), anyMap(), any())).thenAnswer(invocation -> {
+            List<Object> docs = (List<Object>) invocation.<Map<String, Object>>getArgument(2).get("docs");
+            for (Object it : docs) {
+                ObjectNode doc = (ObjectNode) it;
+                written.add(doc.get("_key").textValue() + ":" + doc.get("views").longValue());
+            }
+            if (written.size() == 2) {
+                throw new ArangoDBException("unavailable");
+            }
+            return null;
+        });
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config().add(BATCH_SIZE, "1")), col, context);
+        writer.put(records.subList(0, 3));
+        Map<TopicPartition, OffsetAndMetadata> committed = writer.preCommit(
+                Collections.singletonMap(tp, new OffsetAndMetadata(3)));
+        assertThat(committed.get(tp).offset()).isEqualTo(1);
+        verify(context, never()).offset(anyMap());
+
+        writer.put(Collections.singletonList(new SinkRecord("topic", 1, null, "b", null, map().add("views", 5), 3)));
+        Map<TopicPartition, OffsetAndMetadata> offsets = Collections.singletonMap(tp, new OffsetAndMetadata(4));
+        assertThat(writer.preCommit(offsets)).isEqualTo(offsets);
+
+        // the written documents are never aggregated again
+        assertThat(written).containsExactly("a:4", "b:2", "b:7");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, ObjectNode> aggregatedDocs(ArangoDatabase db) {
+        ArgumentCaptor<Map<String, Object>> bindVars = ArgumentCaptor.forClass(Map.class);
+        verify(db, times(1)).query(anyString(), any(), bindVars.capture(), any());
+        return ((List<Object>) bindVars.getValue().get("docs")).stream()
+                .map(ObjectNode.class::cast)
+                .collect(Collectors.toMap(it -> it.get("_key").textValue(), Function.identity()));
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.arangodb.kafka;
+
+import com.arangodb.ArangoCollection;
+import com.arangodb.ArangoDBException;
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.utils.MockTest;
+import com.arangodb.kafka.utils.Utils;
+import deployment.ArangoDbDeployment;
+import org.apache.kafka.connect.sink.ErrantRecordReporter;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.arangodb.kafka.config.ArangoSinkConfig.*;
+import static com.arangodb.kafka.utils.Utils.createErrorEntity;
+import static com.arangodb.kafka.utils.Utils.map;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@MockTest
+class AqlUpsertTest {
+    private Utils.FluentMap<String, Object> config() {
+        return map()
+                .add(CONNECTION_ENDPOINTS, ArangoDbDeployment.getInstance().getEndpoints())
+                .add(CONNECTION_COLLECTION, "AqlUpsertTest")
+                .add(WRITE_STRATEGY, "aql-upsert")
+                .add(DATA_ERRORS_TOLERANCE, DataErrorsTolerance.ALL.toString());
+    }
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    ArangoCollection col;
+
+    @Mock
+    ErrantRecordReporter reporter;
+
+    @Mock
+    SinkTaskContext context;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void dataErrorsShouldBeReportedForTheFailingRecord() {
+        Mockito.when(context.errantRecordReporter()).thenReturn(reporter);
+        Mockito.when(col.db().query(anyString(), eq(Void.class), anyMap(), any())).thenAnswer(invocation -> {
+            Map<String, Object> bindVars = invocation.getArgument(2);
+            List<Object> docs = (List<Object>) bindVars.get("docs");
+            if (docs.stream().anyMatch(it -> it.toString().contains("\"bad\""))) {
+                throw new ArangoDBException(createErrorEntity(400, 1221));
+            }
+            return null;
+        });
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        SinkRecord bad = new SinkRecord("topic", 1, null, "bad", null, map(), 2);
+        writer.put(Arrays.asList(
+                new SinkRecord("topic", 1, null, "a", null, map(), 0),
+                new SinkRecord("topic", 1, null, "b", null, map(), 1),
+                bad,
+                new SinkRecord("topic", 1, null, "c", null, map(), 3)
+        ));
+
+        verify(reporter, times(1)).report(eq(bad), any());
+        verifyNoMoreInteractions(reporter);
+    }
+
+}
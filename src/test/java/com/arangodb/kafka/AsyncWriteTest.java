@@ -0,0 +1,93 @@
+package com.arangodb.kafka;
+
+import com.arangodb.ArangoCollection;
+import com.arangodb.ArangoCollectionAsync;
+import com.arangodb.ArangoDBException;
+import com.arangodb.entity.DocumentCreateEntity;
+import com.arangodb.entity.MultiDocumentEntity;
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.utils.MockTest;
+import com.arangodb.kafka.utils.Utils;
+import deployment.ArangoDbDeployment;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static com.arangodb.kafka.config.ArangoSinkConfig.*;
+import static com.arangodb.kafka.utils.Utils.createErrorEntity;
+import static com.arangodb.kafka.utils.Utils.map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@MockTest
+class AsyncWriteTest {
+    private final TopicPartition tp = new TopicPartition("topic", 1);
+    private final Map<TopicPartition, OffsetAndMetadata> currentOffsets = Collections.singletonMap(tp, new OffsetAndMetadata(6));
+    private final SinkRecord record = new SinkRecord("topic", 1, null, "key", null, map(), 5);
+
+    private Utils.FluentMap<String, Object> config() {
+        return map()
+                .add(CONNECTION_ENDPOINTS, ArangoDbDeployment.getInstance().getEndpoints())
+                .add(CONNECTION_COLLECTION, "AsyncWriteTest")
+                .add(MAX_IN_FLIGHT_BATCHES, "2")
+                .add(RETRY_BACKOFF_MS, "222");
+    }
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    ArangoCollection col;
+
+    @Mock
+    ArangoCollectionAsync colAsync;
+
+    @Mock
+    SinkTaskContext context;
+
+    private final CompletableFuture<MultiDocumentEntity<DocumentCreateEntity<Void>>> future = new CompletableFuture<>();
+
+    @BeforeEach
+    void setup() {
+        Mockito.when(col.db().arango().async().db(any()).collection(any())).thenReturn(colAsync);
+        Mockito.when(colAsync.insertDocuments(anyIterable(), any())).thenReturn(future);
+    }
+
+    @Test
+    void inFlightBatchesShouldNotBeCommitted() {
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        writer.put(Collections.singleton(record));
+        assertThat(writer.preCommit(currentOffsets)).containsEntry(tp, new OffsetAndMetadata(5));
+
+        MultiDocumentEntity<DocumentCreateEntity<Void>> mockRes = new MultiDocumentEntity<>();
+        mockRes.setDocumentsAndErrors(Collections.singletonList(new Object()));
+        mockRes.setErrors(Collections.emptyList());
+        future.complete(mockRes);
+
+        writer.put(Collections.emptyList());
+        assertThat(writer.preCommit(currentOffsets)).isEqualTo(currentOffsets);
+        verify(context, never()).offset(anyMap());
+    }
+
+    @Test
+    void transientErrorsShouldRewindPartitions() {
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        writer.put(Collections.singleton(record));
+        future.completeExceptionally(new ArangoDBException(createErrorEntity(403, 1004)));
+
+        writer.put(Collections.emptyList());
+        verify(context, times(1)).offset(Collections.singletonMap(tp, 5L));
+        verify(context, times(1)).pause(tp);
+        verify(context, times(1)).timeout(222);
+        assertThat(writer.preCommit(currentOffsets)).containsEntry(tp, new OffsetAndMetadata(5));
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.arangodb.kafka;
+
+import com.arangodb.ArangoCollection;
+import com.arangodb.entity.DocumentCreateEntity;
+import com.arangodb.entity.MultiDocumentEntity;
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.utils.MockTest;
+import com.arangodb.kafka.utils.Utils;
+import deployment.ArangoDbDeployment;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.arangodb.kafka.config.ArangoSinkConfig.*;
+import static com.arangodb.kafka.utils.Utils.map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@MockTest
+class BackpressureTest {
+    private Utils.FluentMap<String, Object> config() {
+        return map()
+                .add(CONNECTION_ENDPOINTS, ArangoDbDeployment.getInstance().getEndpoints())
+                .add(CONNECTION_COLLECTION, "BackpressureTest")
+                .add(BATCH_SIZE, "100")
+                .add(BATCH_ADAPTIVE_ENABLED, "true")
+                .add(BATCH_ADAPTIVE_MIN_SIZE, "10")
+                .add(BACKPRESSURE_QUEUE_TIME_MS, "10");
+    }
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    ArangoCollection col;
+
+    @Mock
+    SinkTaskContext context;
+
+    @BeforeEach
+    void setup() {
+        MultiDocumentEntity<DocumentCreateEntity<Void>> res = new MultiDocumentEntity<>();
+        res.setDocumentsAndErrors(Collections.singletonList(new Object()));
+        res.setErrors(Collections.emptyList());
+        Mockito.when(col.insertDocuments(anyIterable(), any())).thenReturn(res);
+    }
+
+    @Test
+    void highQueueTimeShouldReduceBatchSize() {
+        Mockito.when(col.db().arango().metrics().getQueueTime().getAvg()).thenReturn(0.02);
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        writer.put(Collections.singleton(new SinkRecord("topic", 1, null, "a", null, map(), 0)));
+        assertThat(writer.getBatchSize()).isEqualTo(50);
+    }
+
+    @Test
+    void lowQueueTimeShouldNotReduceBatchSize() {
+        Mockito.when(col.db().arango().metrics().getQueueTime().getAvg()).thenReturn(0.001);
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        writer.put(Collections.singleton(new SinkRecord("topic", 1, null, "a", null, map(), 0)));
+        assertThat(writer.getBatchSize()).isEqualTo(100);
+    }
+
+    @Test
+    void delayExceedingMaxShouldRewindInsteadOfSleeping() {
+        TopicPartition tp = new TopicPartition("topic", 1);
+        Mockito.when(col.db().arango().metrics().getQueueTime().getAvg()).thenReturn(0.02);
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()
+                .add(BATCH_SIZE, "1")
+                .add(BATCH_ADAPTIVE_ENABLED, "false")
+                .add(BACKPRESSURE_MAX_DELAY_MS, "30")), col, context);
+        writer.put(Arrays.asList(
+                new SinkRecord("topic", 1, null, "a", null, map(), 0),
+                new SinkRecord("topic", 1, null, "b", null, map(), 1),
+                new SinkRecord("topic", 1, null, "c", null, map(), 2)
+        ));
+
+        // delayed by 20 ms and then by the remaining 10 ms
+        verify(col, times(2)).insertDocuments(anyIterable(), any());
+        verify(context, times(1)).offset(Collections.singletonMap(tp, 2L));
+        verify(context, times(1)).pause(tp);
+        verify(context, times(1)).timeout(20);
+    }
+
+}
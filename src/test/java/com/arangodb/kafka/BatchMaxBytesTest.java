@@ -0,0 +1,82 @@
+package com.arangodb.kafka;
+
+import com.arangodb.ArangoCollection;
+import com.arangodb.entity.DocumentCreateEntity;
+import com.arangodb.entity.MultiDocumentEntity;
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.utils.MockTest;
+import com.arangodb.kafka.utils.Utils;
+import deployment.ArangoDbDeployment;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.ErrantRecordReporter;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static com.arangodb.kafka.config.ArangoSinkConfig.*;
+import static com.arangodb.kafka.utils.Utils.map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@MockTest
+class BatchMaxBytesTest {
+    private Utils.FluentMap<String, Object> config() {
+        return map()
+                .add(CONNECTION_ENDPOINTS, ArangoDbDeployment.getInstance().getEndpoints())
+                .add(CONNECTION_COLLECTION, "BatchMaxBytesTest")
+                .add(BATCH_MAX_BYTES, "25")
+                .add(DATA_ERRORS_TOLERANCE, DataErrorsTolerance.ALL.toString());
+    }
+
+    @Mock
+    ArangoCollection col;
+
+    @Mock
+    ErrantRecordReporter reporter;
+
+    @Mock
+    SinkTaskContext context;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void batchesShouldBeBoundedBySize() {
+        Mockito.when(context.errantRecordReporter()).thenReturn(reporter);
+        Mockito.when(col.insertDocuments(anyIterable(), any())).thenAnswer(invocation -> {
+            Iterable<Object> docs = invocation.getArgument(0);
+            MultiDocumentEntity<DocumentCreateEntity<Void>> res = new MultiDocumentEntity<>();
+            res.setDocumentsAndErrors(StreamSupport.stream(docs.spliterator(), false).collect(Collectors.toList()));
+            res.setErrors(Collections.emptyList());
+            return res;
+        });
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        SinkRecord oversized = new SinkRecord("topic", 1, null, "x", null,
+                map().add("value", "0123456789012345678901234567890123456789"), 1);
+        writer.put(Arrays.asList(
+                new SinkRecord("topic", 1, null, "a", null, map(), 0),
+                oversized,
+                new SinkRecord("topic", 1, null, "b", null, map(), 2),
+                new SinkRecord("topic", 1, null, "c", null, map(), 3)
+        ));
+
+        // {"_key":"a"} is 11 bytes long
+        ArgumentCaptor<Iterable<Object>> inserted = ArgumentCaptor.forClass(Iterable.class);
+        verify(col, times(2)).insertDocuments(inserted.capture(), any());
+        List<Integer> sizes = inserted.getAllValues().stream()
+                .map(it -> (int) StreamSupport.stream(it.spliterator(), false).count())
+                .collect(Collectors.toList());
+        assertThat(sizes).containsExactly(2, 1);
+        verify(reporter, times(1)).report(eq(oversized), any(DataException.class));
+    }
+
+}
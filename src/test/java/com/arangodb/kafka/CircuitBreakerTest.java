@@ -0,0 +1,103 @@
+package com.arangodb.kafka;
+
+import com.arangodb.ArangoCollection;
+import com.arangodb.ArangoDBException;
+import com.arangodb.entity.DocumentCreateEntity;
+import com.arangodb.entity.MultiDocumentEntity;
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.utils.MockTest;
+import com.arangodb.kafka.utils.Utils;
+import deployment.ArangoDbDeployment;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.errors.RetriableException;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.arangodb.kafka.config.ArangoSinkConfig.*;
+import static com.arangodb.kafka.utils.Utils.map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@MockTest
+class CircuitBreakerTest {
+    private final TopicPartition tp = new TopicPartition("topic", 1);
+    private final List<SinkRecord> records = Collections.singletonList(
+            new SinkRecord("topic", 1, null, "a", null, map(), 0));
+
+    private Utils.FluentMap<String, Object> config() {
+        return map()
+                .add(CONNECTION_ENDPOINTS, ArangoDbDeployment.getInstance().getEndpoints())
+                .add(CONNECTION_COLLECTION, "CircuitBreakerTest")
+                .add(MAX_RETRIES, "1")
+                .add(CIRCUIT_BREAKER_ENABLED, "true")
+                .add(CIRCUIT_BREAKER_FAILURE_THRESHOLD, "2")
+                .add(CIRCUIT_BREAKER_OPEN_MS, "0");
+    }
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    ArangoCollection col;
+
+    @Mock
+    SinkTaskContext context;
+
+    @Test
+    void stateTransitions() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 100);
+        assertThat(breaker.onFailure(0)).isFalse();
+        assertThat(breaker.onFailure(0)).isTrue();
+        assertThat(breaker.state(50)).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.remainingOpenMs(50)).isEqualTo(50);
+        assertThat(breaker.state(100)).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        breaker.onProbeFailure(100);
+        assertThat(breaker.state(150)).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.state(200)).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        breaker.onSuccess();
+        assertThat(breaker.state(200)).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void halfOpenBreakerShouldAllowASingleProbe() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 100);
+        breaker.onFailure(0);
+        assertThat(breaker.tryProbe(50)).isFalse();
+        assertThat(breaker.tryProbe(100)).isTrue();
+        assertThat(breaker.tryProbe(100)).isFalse();
+        breaker.onProbeFailure(100);
+        assertThat(breaker.tryProbe(200)).isTrue();
+        breaker.onSuccess();
+        assertThat(breaker.tryProbe(200)).isFalse();
+    }
+
+    @Test
+    void openCircuitBreakerShouldPausePartitionsWithoutConsumingRetries() {
+        MultiDocumentEntity<DocumentCreateEntity<Void>> res = new MultiDocumentEntity<>();
+        res.setDocumentsAndErrors(Collections.singletonList(new Object()));
+        res.setErrors(Collections.emptyList());
+        Mockito.when(col.insertDocuments(anyIterable(), any()))
+                .thenThrow(new ArangoDBException("unavailable"))
+                .thenThrow(new ArangoDBException("unavailable"))
+                .thenReturn(res);
+        Mockito.when(context.assignment()).thenReturn(Collections.singleton(tp));
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        assertThat(catchThrowable(() -> writer.put(records))).isInstanceOf(RetriableException.class);
+        // retries would be exhausted, but the circuit breaker opens
+        assertThat(catchThrowable(() -> writer.put(records))).isInstanceOf(RetriableException.class);
+        verify(context, times(1)).pause(tp);
+
+        writer.put(records);
+        verify(col.db(), times(1)).getVersion();
+        verify(context, times(1)).resume(tp);
+        verify(col, times(3)).insertDocuments(anyIterable(), any());
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.arangodb.kafka;
+
+import com.arangodb.ArangoCollection;
+import com.arangodb.ArangoDBException;
+import com.arangodb.entity.DocumentCreateEntity;
+import com.arangodb.entity.DocumentDeleteEntity;
+import com.arangodb.entity.ErrorEntity;
+import com.arangodb.entity.MultiDocumentEntity;
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.utils.MockTest;
+import com.arangodb.kafka.utils.Utils;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import deployment.ArangoDbDeployment;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.sink.ErrantRecordReporter;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static com.arangodb.kafka.config.ArangoSinkConfig.*;
+import static com.arangodb.kafka.utils.Utils.createErrorEntity;
+import static com.arangodb.kafka.utils.Utils.map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@MockTest
+class CoalescingTest {
+    private final TopicPartition tp = new TopicPartition("topic", 1);
+    private final List<SinkRecord> records = Arrays.asList(
+            new SinkRecord("topic", 1, null, "a", null, map().add("x", map().add("y", 1)), 0),
+            new SinkRecord("topic", 1, null, "b", null, map().add("v", 1), 1),
+            new SinkRecord("topic", 1, null, "a", null, map().add("x", map().add("z", 2)).add("w", null), 2),
+            new SinkRecord("topic", 1, null, "b", null, null, 3)
+    );
+
+    private Utils.FluentMap<String, Object> config() {
+        return map()
+                .add(CONNECTION_ENDPOINTS, ArangoDbDeployment.getInstance().getEndpoints())
+                .add(CONNECTION_COLLECTION, "CoalescingTest")
+                .add(INSERT_OVERWRITE_MODE, OverwriteMode.UPDATE.toString())
+                .add(DELETE_ENABLED, "true")
+                .add(WRITE_COALESCING_ENABLED, "true");
+    }
+
+    @Mock
+    ArangoCollection col;
+
+    @Mock
+    SinkTaskContext context;
+
+    @Mock
+    ErrantRecordReporter reporter;
+
+    private void stubResults() {
+        MultiDocumentEntity<DocumentCreateEntity<Void>> insertRes = new MultiDocumentEntity<>();
+        insertRes.setDocumentsAndErrors(Collections.singletonList(new Object()));
+        insertRes.setErrors(Collections.emptyList());
+        Mockito.when(col.insertDocuments(anyIterable(), any())).thenReturn(insertRes);
+
+        MultiDocumentEntity<DocumentDeleteEntity<Void>> deleteRes = new MultiDocumentEntity<>();
+        deleteRes.setDocumentsAndErrors(Collections.singletonList(new Object()));
+        deleteRes.setErrors(Collections.emptyList());
+        Mockito.when(col.deleteDocuments(anyIterable(), any())).thenReturn(deleteRes);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void updatesWithSameKeyShouldBeMerged() {
+        stubResults();
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        writer.put(records);
+
+        ObjectNode doc = insertedDoc();
+        assertThat(doc.get("_key").textValue()).isEqualTo("a");
+        assertThat(doc.get("x").get("y").intValue()).isEqualTo(1);
+        assertThat(doc.get("x").get("z").intValue()).isEqualTo(2);
+        assertThat(doc.get("w").isNull()).isTrue();
+
+        ArgumentCaptor<Iterable<Object>> deleted = ArgumentCaptor.forClass(Iterable.class);
+        verify(col, times(1)).deleteDocuments(deleted.capture(), any());
+        assertThat(deleted.getValue()).containsExactly("b");
+    }
+
+    @Test
+    void nestedObjectsShouldBeReplacedWithoutMergeObjects() {
+        stubResults();
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config().add(INSERT_MERGE_OBJECTS, "false")), col, context);
+        writer.put(records);
+
+        ObjectNode doc = insertedDoc();
+        assertThat(doc.get("x").has("y")).isFalse();
+        assertThat(doc.get("x").get("z").intValue()).isEqualTo(2);
+    }
+
+    @Test
+    void failedUpdatesShouldBeRewoundToTheFirstMergedRecord() {
+        Mockito.when(col.insertDocuments(anyIterable(), any()))
+                .thenThrow(new ArangoDBException(createErrorEntity(503, 0)));
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config().add(RETRY_REWIND_ENABLED, "true")), col, context);
+        writer.put(Arrays.asList(
+                new SinkRecord("topic", 1, null, "a", null, map().add("x", 1), 10),
+                new SinkRecord("topic", 1, null, "a", null, map().add("y", 2), 11),
+                new SinkRecord("topic", 1, null, "b", null, map().add("z", 3), 12)
+        ));
+
+        verify(context, times(1)).offset(Collections.singletonMap(tp, 10L));
+        Map<TopicPartition, OffsetAndMetadata> offsets = Collections.singletonMap(tp, new OffsetAndMetadata(13));
+        assertThat(writer.preCommit(offsets)).containsEntry(tp, new OffsetAndMetadata(10));
+    }
+
+    @Test
+    void dataErrorsShouldBeReportedForAllMergedRecords() {
+        ErrorEntity dataError = createErrorEntity(400, 1221);
+        MultiDocumentEntity<DocumentCreateEntity<Void>> insertRes = new MultiDocumentEntity<>();
+        insertRes.setDocumentsAndErrors(Collections.singletonList(dataError));
+        insertRes.setErrors(Collections.singletonList(dataError));
+        Mockito.when(col.insertDocuments(anyIterable(), any())).thenReturn(insertRes);
+        Mockito.when(context.errantRecordReporter()).thenReturn(reporter);
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()
+                .add(DATA_ERRORS_TOLERANCE, DataErrorsTolerance.ALL.toString())), col, context);
+        SinkRecord first = new SinkRecord("topic", 1, null, "a", null, map().add("x", 1), 10);
+        SinkRecord second = new SinkRecord("topic", 1, null, "a", null, map().add("y", 2), 11);
+        writer.put(Arrays.asList(first, second));
+
+        verify(reporter, times(1)).report(eq(first), any());
+        verify(reporter, times(1)).report(eq(second), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private ObjectNode insertedDoc() {
+        ArgumentCaptor<Iterable<Object>> inserted = ArgumentCaptor.forClass(Iterable.class);
+        verify(col, times(1)).insertDocuments(inserted.capture(), any());
+        List<ObjectNode> docs = StreamSupport.stream(inserted.getValue().spliterator(), false)
+                .map(ObjectNode.class::cast)
+                .collect(Collectors.toList());
+        assertThat(docs).hasSize(1);
+        return docs.get(0);
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.arangodb.kafka;
+
+import com.arangodb.ArangoCollection;
+import com.arangodb.entity.DocumentCreateEntity;
+import com.arangodb.entity.DocumentDeleteEntity;
+import com.arangodb.entity.MultiDocumentEntity;
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.utils.MockTest;
+import com.arangodb.kafka.utils.Utils;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import deployment.ArangoDbDeployment;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static com.arangodb.kafka.config.ArangoSinkConfig.*;
+import static com.arangodb.kafka.utils.Utils.map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@MockTest
+class CompactionTest {
+    private Utils.FluentMap<String, Object> config() {
+        return map()
+                .add(CONNECTION_ENDPOINTS, ArangoDbDeployment.getInstance().getEndpoints())
+                .add(CONNECTION_COLLECTION, "CompactionTest")
+                .add(INSERT_OVERWRITE_MODE, OverwriteMode.REPLACE.toString())
+                .add(DELETE_ENABLED, "true")
+                .add(WRITE_COMPACTION_ENABLED, "true");
+    }
+
+    @Mock
+    ArangoCollection col;
+
+    @Mock
+    SinkTaskContext context;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordsWithSameKeyShouldBeCompacted() {
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+
+        MultiDocumentEntity<DocumentCreateEntity<Void>> insertRes = new MultiDocumentEntity<>();
+        insertRes.setDocumentsAndErrors(Collections.singletonList(new Object()));
+        insertRes.setErrors(Collections.emptyList());
+        Mockito.when(col.insertDocuments(anyIterable(), any())).thenReturn(insertRes);
+
+        MultiDocumentEntity<DocumentDeleteEntity<Void>> deleteRes = new MultiDocumentEntity<>();
+        deleteRes.setDocumentsAndErrors(Collections.singletonList(new Object()));
+        deleteRes.setErrors(Collections.emptyList());
+        Mockito.when(col.deleteDocuments(anyIterable(), any())).thenReturn(deleteRes);
+
+        writer.put(Arrays.asList(
+                new SinkRecord("topic", 1, null, "a", null, map().add("v", 1), 0),
+                new SinkRecord("topic", 1, null, "b", null, map().add("v", 1), 1),
+                new SinkRecord("topic", 1, null, "a", null, map().add("v", 2), 2),
+                new SinkRecord("topic", 1, null, "b", null, null, 3)
+        ));
+
+        ArgumentCaptor<Iterable<Object>> inserted = ArgumentCaptor.forClass(Iterable.class);
+        verify(col, times(1)).insertDocuments(inserted.capture(), any());
+        List<ObjectNode> docs = StreamSupport.stream(inserted.getValue().spliterator(), false)
+                .map(ObjectNode.class::cast)
+                .collect(Collectors.toList());
+        assertThat(docs).hasSize(1);
+        assertThat(docs.get(0).get("_key").textValue()).isEqualTo("a");
+        assertThat(docs.get(0).get("v").intValue()).isEqualTo(2);
+
+        ArgumentCaptor<Iterable<Object>> deleted = ArgumentCaptor.forClass(Iterable.class);
+        verify(col, times(1)).deleteDocuments(deleted.capture(), any());
+        assertThat(deleted.getValue()).containsExactly("b");
+    }
+
+}
@@ -1,8 +1,14 @@
 package com.arangodb.kafka;
 
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.conversion.EdgeConverter;
 import com.arangodb.kafka.conversion.KeyConverter;
 import com.arangodb.kafka.conversion.RecordConverter;
+import com.arangodb.kafka.conversion.VersionConverter;
+import com.arangodb.kafka.utils.Utils;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import deployment.ArangoDbDeployment;
+import org.apache.kafka.common.record.TimestampType;
 import org.apache.kafka.connect.errors.DataException;
 import org.apache.kafka.connect.sink.SinkRecord;
 import org.junit.jupiter.api.Test;
@@ -12,6 +18,7 @@ import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 
+import static com.arangodb.kafka.config.ArangoSinkConfig.*;
 import static com.arangodb.kafka.utils.Utils.map;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
@@ -92,4 +99,54 @@ public class ConverterTest {
         assertThat(node.get("map").get("foo").textValue()).isEqualTo("bar");
     }
 
+    @Test
+    void edgeVerticesShouldBeDerivedFromFields() {
+        RecordConverter edgeConverter = new RecordConverter(new KeyConverter(), new EdgeConverter(new ArangoSinkConfig(map()
+                .add(CONNECTION_ENDPOINTS, ArangoDbDeployment.getInstance().getEndpoints())
+                .add(CONNECTION_COLLECTION, "follows")
+                .add(EDGE_FROM_FIELD, "follower.id")
+                .add(EDGE_FROM_COLLECTION, "users")
+                .add(EDGE_TO_FIELD, "followee"))), null);
+
+        SinkRecord record = new SinkRecord("topic", 1, null, "key", null, map()
+                .add("follower", map().add("id", 11))
+                .add("followee", "users/22"), 0);
+        ObjectNode node = edgeConverter.convert(record);
+        assertThat(node.get("_from").textValue()).isEqualTo("users/11");
+        assertThat(node.get("_to").textValue()).isEqualTo("users/22");
+
+        List<Map<String, Object>> invalid = Arrays.asList(
+                map().add("followee", "users/22"),
+                map().add("follower", map().add("id", "a/b")).add("followee", "users/22"),
+                map().add("follower", map().add("id", 11)).add("followee", "22")
+        );
+        for (Map<String, Object> value : invalid) {
+            Throwable thrown = catchThrowable(() ->
+                    edgeConverter.convert(new SinkRecord("topic", 1, null, "key", null, value, 0)));
+            assertThat(thrown).isInstanceOf(DataException.class);
+        }
+    }
+
+    @Test
+    void versionShouldBeSetFromRecordMetadata() {
+        Utils.FluentMap<String, Object> config = map()
+                .add(CONNECTION_ENDPOINTS, ArangoDbDeployment.getInstance().getEndpoints())
+                .add(CONNECTION_COLLECTION, "col")
+                .add(INSERT_OVERWRITE_MODE, "replace")
+                .add(INSERT_VERSION_ATTRIBUTE, "version");
+        assertThat(new VersionConverter(new ArangoSinkConfig(config)).isEnabled()).isFalse();
+
+        SinkRecord record = new SinkRecord("topic", 1, null, "key", null, map(), 5, 1234L, TimestampType.CREATE_TIME);
+        RecordConverter offsetConverter = new RecordConverter(new KeyConverter(), null,
+                new VersionConverter(new ArangoSinkConfig(config.add(INSERT_VERSION_SOURCE, "offset"))));
+        assertThat(offsetConverter.convert(record).get("version").longValue()).isEqualTo(5L);
+
+        RecordConverter timestampConverter = new RecordConverter(new KeyConverter(), null,
+                new VersionConverter(new ArangoSinkConfig(config.add(INSERT_VERSION_SOURCE, "timestamp"))));
+        assertThat(timestampConverter.convert(record).get("version").longValue()).isEqualTo(1234L);
+        Throwable thrown = catchThrowable(() ->
+                timestampConverter.convert(new SinkRecord("topic", 1, null, "key", null, map(), 5)));
+        assertThat(thrown).isInstanceOf(DataException.class);
+    }
+
 }
@@ -0,0 +1,100 @@
+package com.arangodb.kafka;
+
+import com.arangodb.kafka.utils.MockTest;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@MockTest
+class DeferredTaskContextTest {
+    private final TopicPartition tp = new TopicPartition("topic", 1);
+
+    @Mock
+    SinkTaskContext context;
+
+    @Test
+    void operationsShouldBeAppliedOnlyOnApply() {
+        DeferredTaskContext deferred = new DeferredTaskContext(context);
+        SinkTaskContext lane = deferred.lane(0);
+        lane.offset(Collections.singletonMap(tp, 5L));
+        lane.pause(tp);
+        lane.timeout(300);
+        lane.timeout(100);
+        verifyNoInteractions(context);
+
+        deferred.apply();
+        verify(context, times(1)).offset(Collections.singletonMap(tp, 5L));
+        verify(context, times(1)).pause(tp);
+        verify(context, times(1)).timeout(100);
+
+        deferred.apply();
+        verifyNoMoreInteractions(context);
+    }
+
+    @Test
+    void lanesShouldRewindToTheLowestOffset() {
+        DeferredTaskContext deferred = new DeferredTaskContext(context);
+        SinkTaskContext lane0 = deferred.lane(0);
+        SinkTaskContext lane1 = deferred.lane(1);
+        lane0.offset(Collections.singletonMap(tp, 10L));
+        lane1.offset(Collections.singletonMap(tp, 15L));
+        lane1.offset(tp, 12L);
+
+        deferred.apply();
+        verify(context, times(1)).offset(Collections.singletonMap(tp, 10L));
+        verifyNoMoreInteractions(context);
+    }
+
+    @Test
+    void partitionsShouldBeResumedWhenResumedByAllTheLanes() {
+        DeferredTaskContext deferred = new DeferredTaskContext(context);
+        SinkTaskContext lane0 = deferred.lane(0);
+        SinkTaskContext lane1 = deferred.lane(1);
+        lane0.pause(tp);
+        lane1.pause(tp);
+        deferred.apply();
+        verify(context, times(1)).pause(tp);
+
+        lane0.resume(tp);
+        deferred.apply();
+        verify(context, never()).resume(tp);
+
+        lane1.resume(tp);
+        deferred.apply();
+        verify(context, times(1)).resume(tp);
+    }
+
+    @Test
+    void closedPartitionsShouldNotBeRewound() {
+        DeferredTaskContext deferred = new DeferredTaskContext(context);
+        deferred.lane(0).offset(tp, 10L);
+        deferred.lane(1).pause(tp);
+        deferred.close(Collections.singleton(tp));
+
+        deferred.apply();
+        verifyNoInteractions(context);
+    }
+
+    @Test
+    void assignmentShouldBeTrackedWithoutTheDelegate() {
+        TopicPartition other = new TopicPartition("topic", 2);
+        DeferredTaskContext deferred = new DeferredTaskContext(context);
+        deferred.open(Arrays.asList(tp, other));
+        deferred.close(Collections.singleton(other));
+
+        Set<TopicPartition> assignment = deferred.lane(0).assignment();
+        assertThat(assignment).containsExactly(tp);
+        assignment.clear();
+        assertThat(deferred.lane(1).assignment()).containsExactly(tp);
+        verifyNoInteractions(context);
+    }
+
+}
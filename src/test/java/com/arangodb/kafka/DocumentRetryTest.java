@@ -0,0 +1,95 @@
+package com.arangodb.kafka;
+
+import com.arangodb.ArangoCollection;
+import com.arangodb.entity.DocumentCreateEntity;
+import com.arangodb.entity.ErrorEntity;
+import com.arangodb.entity.MultiDocumentEntity;
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.utils.MockTest;
+import com.arangodb.kafka.utils.Utils;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import deployment.ArangoDbDeployment;
+import org.apache.kafka.connect.errors.RetriableException;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static com.arangodb.kafka.config.ArangoSinkConfig.*;
+import static com.arangodb.kafka.utils.Utils.createErrorEntity;
+import static com.arangodb.kafka.utils.Utils.map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@MockTest
+class DocumentRetryTest {
+    private Utils.FluentMap<String, Object> config() {
+        return map()
+                .add(CONNECTION_ENDPOINTS, ArangoDbDeployment.getInstance().getEndpoints())
+                .add(CONNECTION_COLLECTION, "DocumentRetryTest")
+                .add(MAX_DOCUMENT_RETRIES, "1")
+                .add(DOCUMENT_RETRY_BACKOFF_MS, "1");
+    }
+
+    @Mock
+    ArangoCollection col;
+
+    @Mock
+    SinkTaskContext context;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void onlyFailedDocumentsShouldBeRetried() {
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        Mockito.when(col.insertDocuments(anyIterable(), any())).thenReturn(
+                result(new Object(), createErrorEntity(403, 1004)),
+                result(new Object())
+        );
+
+        writer.put(Arrays.asList(
+                new SinkRecord("topic", 1, null, "a", null, map().add("v", 1), 0),
+                new SinkRecord("topic", 1, null, "b", null, map().add("v", 1), 1)
+        ));
+
+        ArgumentCaptor<Iterable<Object>> inserted = ArgumentCaptor.forClass(Iterable.class);
+        verify(col, times(2)).insertDocuments(inserted.capture(), any());
+        List<String> retried = StreamSupport.stream(inserted.getAllValues().get(1).spliterator(), false)
+                .map(it -> ((ObjectNode) it).get("_key").textValue())
+                .collect(Collectors.toList());
+        assertThat(retried).containsExactly("b");
+    }
+
+    @Test
+    void exhaustedDocumentRetriesShouldEscalate() {
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        Mockito.when(col.insertDocuments(anyIterable(), any()))
+                .thenReturn(result(createErrorEntity(403, 1004)));
+
+        Throwable thrown = catchThrowable(() -> writer.put(Collections.singleton(
+                new SinkRecord("topic", 1, null, "a", null, map().add("v", 1), 0))));
+
+        assertThat(thrown).isInstanceOf(RetriableException.class);
+        verify(col, times(2)).insertDocuments(anyIterable(), any());
+    }
+
+    private MultiDocumentEntity<DocumentCreateEntity<Void>> result(Object... docsAndErrs) {
+        MultiDocumentEntity<DocumentCreateEntity<Void>> res = new MultiDocumentEntity<>();
+        res.setDocumentsAndErrors(Arrays.asList(docsAndErrs));
+        res.setErrors(Arrays.stream(docsAndErrs)
+                .filter(ErrorEntity.class::isInstance)
+                .map(ErrorEntity.class::cast)
+                .collect(Collectors.toList()));
+        return res;
+    }
+
+}
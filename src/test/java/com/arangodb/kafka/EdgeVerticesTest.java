@@ -0,0 +1,72 @@
+package com.arangodb.kafka;
+
+import com.arangodb.ArangoCollection;
+import com.arangodb.ArangoDatabase;
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.utils.MockTest;
+import com.arangodb.kafka.utils.Utils;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import deployment.ArangoDbDeployment;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.arangodb.kafka.config.ArangoSinkConfig.*;
+import static com.arangodb.kafka.utils.Utils.map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@MockTest
+class EdgeVerticesTest {
+    private Utils.FluentMap<String, Object> config() {
+        return map()
+                .add(CONNECTION_ENDPOINTS, ArangoDbDeployment.getInstance().getEndpoints())
+                .add(CONNECTION_COLLECTION, "Follows")
+                .add(EDGE_FROM_FIELD, "follower")
+                .add(EDGE_FROM_COLLECTION, "Users")
+                .add(EDGE_TO_FIELD, "followed")
+                .add(EDGE_TO_COLLECTION, "Pages")
+                .add(EDGE_VERTICES_ENABLED, "true");
+    }
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    ArangoCollection col;
+
+    @Mock
+    SinkTaskContext context;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void edgesAndVerticesShouldBeWrittenInOneQuery() {
+        ArangoDatabase db = col.db();
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        writer.put(Arrays.asList(
+                new SinkRecord("topic", 1, null, "a", null, map().add("follower", "u1").add("followed", "p1"), 0),
+                new SinkRecord("topic", 1, null, "b", null, map().add("follower", "u2").add("followed", "p1"), 1)
+        ));
+
+        ArgumentCaptor<String> query = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Map<String, Object>> bindVars = ArgumentCaptor.forClass(Map.class);
+        verify(db, times(1)).query(query.capture(), any(), bindVars.capture(), any());
+        assertThat(query.getValue())
+                .contains("INTO `Users`")
+                .contains("INTO `Pages`")
+                .contains("INTO @@collection");
+        List<String> edges = ((List<Object>) bindVars.getValue().get("docs")).stream()
+                .map(ObjectNode.class::cast)
+                .map(it -> it.get("_from").textValue() + "->" + it.get("_to").textValue())
+                .collect(Collectors.toList());
+        assertThat(edges).containsExactly("Users/u1->Pages/p1", "Users/u2->Pages/p1");
+        verify(col, never()).insertDocuments(anyIterable(), any());
+    }
+
+}
@@ -18,14 +18,17 @@ import org.apache.kafka.connect.sink.ErrantRecordReporter;
 import org.apache.kafka.connect.sink.SinkRecord;
 import org.apache.kafka.connect.sink.SinkTaskContext;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 
-import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 
 import static com.arangodb.kafka.config.ArangoSinkConfig.*;
+import static com.arangodb.kafka.utils.Utils.createErrorEntity;
+import static com.arangodb.kafka.utils.Utils.createException;
 import static com.arangodb.kafka.utils.Utils.interceptLogger;
 import static com.arangodb.kafka.utils.Utils.map;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -189,6 +192,39 @@ class ErrorHandlingTest {
         verify(reporter, never()).report(any(), any());
     }
 
+    @Test
+    void successfulBatchesShouldNotResetTheRetriesOfTheFailingBatch() {
+        Map<String, Object> cfg = config()
+                .add(BATCH_SIZE, "1")
+                .add(MAX_RETRIES, "2")
+                .add(RETRY_BACKOFF_MS, "222");
+
+        Mockito.when(context.errantRecordReporter()).thenReturn(reporter);
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(cfg), col, context);
+        SinkRecord first = new SinkRecord("topic", 1, null, "a", null, map(), 0);
+        SinkRecord second = new SinkRecord("topic", 1, null, "b", null, map(), 1);
+
+        MultiDocumentEntity<DocumentCreateEntity<Void>> mockRes = new MultiDocumentEntity<>();
+        mockRes.setDocumentsAndErrors(Collections.singletonList(new Object()));
+        mockRes.setErrors(Collections.emptyList());
+        Mockito.when(col.insertDocuments(anyIterable(), any()))
+                .thenReturn(mockRes).thenThrow(transientException)
+                .thenReturn(mockRes).thenThrow(transientException)
+                .thenReturn(mockRes).thenThrow(transientException);
+
+        assertThat(catchThrowable(() -> writer.put(Arrays.asList(first, second)))).isInstanceOf(RetriableException.class);
+        assertThat(catchThrowable(() -> writer.put(Arrays.asList(first, second)))).isInstanceOf(RetriableException.class);
+
+        Throwable thrown = catchThrowable(() -> writer.put(Arrays.asList(first, second)));
+        assertThat(thrown).isInstanceOf(TransientException.class);
+        assertThat(thrown.getCause()).isInstanceOf(ArangoDBException.class);
+
+        verify(context, times(2)).timeout(222);
+        verify(col, times(6)).insertDocuments(anyIterable(), any());
+        verify(reporter, never()).report(any(), any());
+    }
+
     @Test
     void transientErrorsInBatchResultWithNoRetriesShouldThrow() {
         Map<String, Object> cfg = config().add(MAX_RETRIES, "0");
@@ -271,26 +307,57 @@ class ErrorHandlingTest {
         verify(reporter, never()).report(any(), any());
     }
 
-    private ArangoDBException createException(int code, int errNum) {
-        return new ArangoDBException(createErrorEntity(code, errNum));
+    @Test
+    @SuppressWarnings("unchecked")
+    void invalidEdgesShouldBeReportedWithoutFailingTheBatch() {
+        Map<String, Object> cfg = config()
+                .add(DATA_ERRORS_TOLERANCE, DataErrorsTolerance.ALL.toString())
+                .add(EDGE_FROM_FIELD, "from")
+                .add(EDGE_TO_FIELD, "to");
+
+        Mockito.when(context.errantRecordReporter()).thenReturn(reporter);
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(cfg), col, context);
+        SinkRecord good = new SinkRecord("topic", 1, null, "a", null, map().add("from", "v/a").add("to", "v/b"), 0);
+        SinkRecord bad = new SinkRecord("topic", 1, null, "b", null, map().add("from", "a").add("to", "v/b"), 1);
+
+        MultiDocumentEntity<DocumentCreateEntity<Void>> mockRes = new MultiDocumentEntity<>();
+        mockRes.setDocumentsAndErrors(Collections.singletonList(new Object()));
+        mockRes.setErrors(Collections.emptyList());
+        Mockito.when(col.insertDocuments(anyIterable(), any())).thenReturn(mockRes);
+
+        writer.put(Arrays.asList(good, bad));
+
+        verify(reporter, times(1)).report(refEq(bad), argThat(e -> {
+            assertThat(e)
+                    .isInstanceOf(DataException.class)
+                    .hasMessageContaining("Invalid _from document handle");
+            return true;
+        }));
+        ArgumentCaptor<Iterable<Object>> inserted = ArgumentCaptor.forClass(Iterable.class);
+        verify(col, times(1)).insertDocuments(inserted.capture(), any());
+        assertThat(inserted.getValue()).hasSize(1);
     }
 
-    private ErrorEntity createErrorEntity(int code, int errNum) {
-        ErrorEntity ee = new ErrorEntity();
+    @Test
+    void invalidEdgesToleranceNoneShouldThrowDataException() {
+        Map<String, Object> cfg = config()
+                .add(DATA_ERRORS_TOLERANCE, DataErrorsTolerance.NONE.toString())
+                .add(EDGE_FROM_FIELD, "from")
+                .add(EDGE_TO_FIELD, "to");
 
-        try {
-            Field cf = ee.getClass().getDeclaredField("code");
-            cf.setAccessible(true);
-            cf.setInt(ee, code);
+        Mockito.when(context.errantRecordReporter()).thenReturn(reporter);
 
-            Field ef = ee.getClass().getDeclaredField("errorNum");
-            ef.setAccessible(true);
-            ef.setInt(ee, errNum);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(cfg), col, context);
+        SinkRecord bad = new SinkRecord("topic", 1, null, "b", null, map().add("to", "v/b"), 0);
+
+        Throwable thrown = catchThrowable(() -> writer.put(Collections.singleton(bad)));
+        assertThat(thrown)
+                .isInstanceOf(DataException.class)
+                .hasMessageContaining("Missing _from field");
 
-        return ee;
+        verify(reporter, never()).report(any(), any());
+        verify(col, never()).insertDocuments(anyIterable(), any());
     }
 
 }
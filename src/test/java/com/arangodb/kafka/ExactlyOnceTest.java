@@ -0,0 +1,125 @@
+package com.arangodb.kafka;
+
+import com.arangodb.ArangoCollection;
+import com.arangodb.ArangoDBException;
+import com.arangodb.entity.DocumentCreateEntity;
+import com.arangodb.entity.MultiDocumentEntity;
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.utils.MockTest;
+import com.arangodb.kafka.utils.Utils;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import deployment.ArangoDbDeployment;
+import org.apache.kafka.connect.errors.RetriableException;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static com.arangodb.kafka.config.ArangoSinkConfig.*;
+import static com.arangodb.kafka.utils.Utils.createErrorEntity;
+import static com.arangodb.kafka.utils.Utils.map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@MockTest
+class ExactlyOnceTest {
+    private Utils.FluentMap<String, Object> config() {
+        return map()
+                .add(CONNECTION_ENDPOINTS, ArangoDbDeployment.getInstance().getEndpoints())
+                .add(CONNECTION_COLLECTION, "ExactlyOnceTest")
+                .add(EXACTLY_ONCE_ENABLED, "true")
+                .add(BATCH_SIZE, "2");
+    }
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    ArangoCollection col;
+
+    @Mock
+    ArangoCollection offsetsCol;
+
+    @Mock
+    SinkTaskContext context;
+
+    @BeforeEach
+    void setup() {
+        Mockito.when(col.db().collection("kafka_offsets")).thenReturn(offsetsCol);
+        Mockito.when(col.db().beginStreamTransaction(any()).getId()).thenReturn("tx");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void batchesShouldBeCommittedWithTheirOffsets() {
+        Mockito.when(col.insertDocuments(anyIterable(), any())).thenReturn(result(2), result(1));
+        Mockito.when(offsetsCol.insertDocuments(anyIterable(), any())).thenReturn(result(1));
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        writer.put(Arrays.asList(
+                new SinkRecord("topic", 1, null, "a", null, map(), 10),
+                new SinkRecord("topic", 1, null, "b", null, map(), 11),
+                new SinkRecord("topic", 1, null, "c", null, map(), 12)
+        ));
+
+        ArgumentCaptor<Iterable<Object>> offsets = ArgumentCaptor.forClass(Iterable.class);
+        verify(offsetsCol, times(2)).insertDocuments(offsets.capture(), any());
+        List<Long> written = offsets.getAllValues().stream()
+                .flatMap(it -> StreamSupport.stream(it.spliterator(), false))
+                .map(it -> ((ObjectNode) it).get("offset").longValue())
+                .collect(Collectors.toList());
+        assertThat(written).containsExactly(12L, 13L);
+        verify(col.db(), times(2)).commitStreamTransaction("tx");
+        verify(col.db(), never()).abortStreamTransaction(any());
+    }
+
+    @Test
+    void failedBatchesShouldBeAborted() {
+        Mockito.when(col.insertDocuments(anyIterable(), any()))
+                .thenThrow(new ArangoDBException(createErrorEntity(403, 1004)));
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        Throwable thrown = catchThrowable(() -> writer.put(Collections.singleton(
+                new SinkRecord("topic", 1, null, "a", null, map(), 10))));
+
+        assertThat(thrown).isInstanceOf(RetriableException.class);
+        verify(offsetsCol, never()).insertDocuments(anyIterable(), any());
+        verify(col.db(), never()).commitStreamTransaction(any());
+        verify(col.db(), times(1)).abortStreamTransaction("tx");
+    }
+
+    @Test
+    void offsetsWriteConflictsShouldBeRetried() {
+        MultiDocumentEntity<DocumentCreateEntity<Void>> conflict = new MultiDocumentEntity<>();
+        conflict.setDocumentsAndErrors(Collections.singletonList(createErrorEntity(409, 1200)));
+        conflict.setErrors(Collections.singletonList(createErrorEntity(409, 1200)));
+        Mockito.when(col.insertDocuments(anyIterable(), any())).thenReturn(result(1));
+        Mockito.when(offsetsCol.insertDocuments(anyIterable(), any())).thenReturn(conflict);
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        Throwable thrown = catchThrowable(() -> writer.put(Collections.singleton(
+                new SinkRecord("topic", 1, null, "a", null, map(), 10))));
+
+        assertThat(thrown).isInstanceOf(RetriableException.class);
+        assertThat(thrown.getCause()).isInstanceOf(TransientException.class);
+        verify(col.db(), never()).commitStreamTransaction(any());
+        verify(col.db(), times(1)).abortStreamTransaction("tx");
+    }
+
+    private MultiDocumentEntity<DocumentCreateEntity<Void>> result(int size) {
+        MultiDocumentEntity<DocumentCreateEntity<Void>> res = new MultiDocumentEntity<>();
+        res.setDocumentsAndErrors(Collections.nCopies(size, new Object()));
+        res.setErrors(Collections.emptyList());
+        return res;
+    }
+
+}
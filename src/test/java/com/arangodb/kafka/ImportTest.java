@@ -0,0 +1,68 @@
+package com.arangodb.kafka;
+
+import com.arangodb.ArangoCollection;
+import com.arangodb.entity.DocumentImportEntity;
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.utils.MockTest;
+import com.arangodb.kafka.utils.Utils;
+import deployment.ArangoDbDeployment;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.ErrantRecordReporter;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.arangodb.kafka.config.ArangoSinkConfig.*;
+import static com.arangodb.kafka.utils.Utils.map;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@MockTest
+class ImportTest {
+    private Utils.FluentMap<String, Object> config() {
+        return map()
+                .add(CONNECTION_ENDPOINTS, ArangoDbDeployment.getInstance().getEndpoints())
+                .add(CONNECTION_COLLECTION, "ImportTest")
+                .add(WRITE_STRATEGY, WriteStrategy.IMPORT.toString())
+                .add(DATA_ERRORS_TOLERANCE, DataErrorsTolerance.ALL.toString());
+    }
+
+    @Mock
+    ArangoCollection col;
+
+    @Mock
+    DocumentImportEntity importRes;
+
+    @Mock
+    ErrantRecordReporter reporter;
+
+    @Mock
+    SinkTaskContext context;
+
+    @Test
+    void importErrorsShouldBeAttributedToRecords() {
+        Mockito.when(context.errantRecordReporter()).thenReturn(reporter);
+        Mockito.when(importRes.getErrors()).thenReturn(1);
+        Mockito.when(importRes.getDetails()).thenReturn(Collections.singletonList(
+                "at position 1: creating document failed with error 'unique constraint violated', offending document: {}"));
+        Mockito.when(col.importDocuments(anyIterable(), any())).thenReturn(importRes);
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        SinkRecord failing = new SinkRecord("topic", 1, null, "b", null, map(), 1);
+        writer.put(Arrays.asList(
+                new SinkRecord("topic", 1, null, "a", null, map(), 0),
+                failing,
+                new SinkRecord("topic", 1, null, "c", null, map(), 2)
+        ));
+
+        verify(col, times(1)).importDocuments(anyIterable(), any());
+        verify(reporter, times(1)).report(eq(failing), any(DataException.class));
+        verifyNoMoreInteractions(reporter);
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.arangodb.kafka;
+
+import com.arangodb.ArangoCollection;
+import com.arangodb.ArangoDBException;
+import com.arangodb.entity.DocumentCreateEntity;
+import com.arangodb.entity.MultiDocumentEntity;
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.utils.MockTest;
+import com.arangodb.kafka.utils.Utils;
+import deployment.ArangoDbDeployment;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static com.arangodb.kafka.config.ArangoSinkConfig.*;
+import static com.arangodb.kafka.utils.Utils.map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@MockTest
+class LingerTest {
+    private final TopicPartition tp = new TopicPartition("topic", 1);
+    private final Map<TopicPartition, OffsetAndMetadata> currentOffsets = Collections.singletonMap(tp, new OffsetAndMetadata(2));
+
+    private Utils.FluentMap<String, Object> config() {
+        return map()
+                .add(CONNECTION_ENDPOINTS, ArangoDbDeployment.getInstance().getEndpoints())
+                .add(CONNECTION_COLLECTION, "LingerTest")
+                .add(BATCH_LINGER_MS, "60000")
+                .add(BATCH_SIZE, "10");
+    }
+
+    @Mock
+    ArangoCollection col;
+
+    @Mock
+    SinkTaskContext context;
+
+    @Test
+    void recordsShouldBeBufferedUntilPreCommit() {
+        MultiDocumentEntity<DocumentCreateEntity<Void>> mockRes = new MultiDocumentEntity<>();
+        mockRes.setDocumentsAndErrors(Arrays.asList(new Object(), new Object()));
+        mockRes.setErrors(Collections.emptyList());
+        Mockito.when(col.insertDocuments(anyIterable(), any())).thenReturn(mockRes);
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        writer.put(Collections.singleton(new SinkRecord("topic", 1, null, "a", null, map(), 0)));
+        writer.put(Collections.singleton(new SinkRecord("topic", 1, null, "b", null, map(), 1)));
+        verify(col, never()).insertDocuments(anyIterable(), any());
+        verify(context, times(2)).timeout(longThat(it -> it > 0 && it <= 60000));
+
+        assertThat(writer.preCommit(currentOffsets)).isEqualTo(currentOffsets);
+        verify(col, times(1)).insertDocuments(anyIterable(), any());
+    }
+
+    @Test
+    void flushErrorsShouldBeDeferredToNextPut() {
+        Mockito.when(col.insertDocuments(anyIterable(), any())).thenThrow(new ArangoDBException("fatal"));
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config().add(MAX_RETRIES, "0")), col, context);
+        writer.put(Collections.singleton(new SinkRecord("topic", 1, null, "a", null, map(), 1)));
+
+        assertThat(writer.preCommit(currentOffsets)).containsEntry(tp, new OffsetAndMetadata(1));
+        Throwable thrown = catchThrowable(() -> writer.put(Collections.emptyList()));
+        assertThat(thrown).isInstanceOf(ConnectException.class);
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.arangodb.kafka;
+
+import com.arangodb.ArangoCollection;
+import com.arangodb.ArangoCollectionAsync;
+import com.arangodb.entity.DocumentCreateEntity;
+import com.arangodb.entity.DocumentDeleteEntity;
+import com.arangodb.entity.MultiDocumentEntity;
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.utils.MockTest;
+import com.arangodb.kafka.utils.Utils;
+import deployment.ArangoDbDeployment;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static com.arangodb.kafka.config.ArangoSinkConfig.*;
+import static com.arangodb.kafka.utils.Utils.createErrorEntity;
+import static com.arangodb.kafka.utils.Utils.map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@MockTest
+class MixedBatchTest {
+    private Utils.FluentMap<String, Object> config() {
+        return map()
+                .add(CONNECTION_ENDPOINTS, ArangoDbDeployment.getInstance().getEndpoints())
+                .add(CONNECTION_COLLECTION, "MixedBatchTest")
+                .add(DELETE_ENABLED, "true")
+                .add(BATCH_MIXED_ENABLED, "true");
+    }
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    ArangoCollection col;
+
+    @Mock
+    ArangoCollectionAsync colAsync;
+
+    @Mock
+    SinkTaskContext context;
+
+    @BeforeEach
+    void setup() {
+        Mockito.when(col.db().arango().async().db(any()).collection(any())).thenReturn(colAsync);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void insertsAndDeletesShouldBeBatchedTogether() {
+        MultiDocumentEntity<DocumentCreateEntity<Void>> insertRes = new MultiDocumentEntity<>();
+        insertRes.setDocumentsAndErrors(Arrays.asList(new Object(), new Object()));
+        insertRes.setErrors(Collections.emptyList());
+        Mockito.when(colAsync.insertDocuments(anyIterable(), any())).thenReturn(CompletableFuture.completedFuture(insertRes));
+
+        MultiDocumentEntity<DocumentDeleteEntity<Void>> deleteRes = new MultiDocumentEntity<>();
+        deleteRes.setDocumentsAndErrors(Collections.singletonList(createErrorEntity(404, 1202)));
+        deleteRes.setErrors(Collections.emptyList());
+        Mockito.when(colAsync.deleteDocuments(anyIterable(), any())).thenReturn(CompletableFuture.completedFuture(deleteRes));
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        writer.put(Arrays.asList(
+                new SinkRecord("topic", 1, null, "a", null, map(), 0),
+                new SinkRecord("topic", 1, null, "b", null, null, 1),
+                new SinkRecord("topic", 1, null, "c", null, map(), 2),
+                new SinkRecord("topic", 1, null, "a", null, null, 3)
+        ));
+
+        ArgumentCaptor<Iterable<Object>> inserted = ArgumentCaptor.forClass(Iterable.class);
+        verify(colAsync, times(1)).insertDocuments(inserted.capture(), any());
+        assertThat(inserted.getValue()).hasSize(2);
+
+        ArgumentCaptor<Iterable<Object>> deleted = ArgumentCaptor.forClass(Iterable.class);
+        verify(colAsync, times(2)).deleteDocuments(deleted.capture(), any());
+        List<List<Object>> deletes = deleted.getAllValues().stream()
+                .map(it -> StreamSupport.stream(it.spliterator(), false).collect(Collectors.toList()))
+                .collect(Collectors.toList());
+        assertThat(deletes).containsExactly(
+                Collections.singletonList("b"),
+                Collections.singletonList("a")
+        );
+    }
+
+}
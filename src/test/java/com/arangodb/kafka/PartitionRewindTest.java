@@ -0,0 +1,106 @@
+package com.arangodb.kafka;
+
+import com.arangodb.ArangoCollection;
+import com.arangodb.ArangoDBException;
+import com.arangodb.entity.DocumentCreateEntity;
+import com.arangodb.entity.MultiDocumentEntity;
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.utils.MockTest;
+import com.arangodb.kafka.utils.Utils;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import deployment.ArangoDbDeployment;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.arangodb.kafka.config.ArangoSinkConfig.*;
+import static com.arangodb.kafka.utils.Utils.createErrorEntity;
+import static com.arangodb.kafka.utils.Utils.map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@MockTest
+class PartitionRewindTest {
+    private final TopicPartition tp1 = new TopicPartition("topic", 1);
+    private final TopicPartition tp2 = new TopicPartition("topic", 2);
+
+    private Utils.FluentMap<String, Object> config() {
+        return map()
+                .add(CONNECTION_ENDPOINTS, ArangoDbDeployment.getInstance().getEndpoints())
+                .add(CONNECTION_COLLECTION, "PartitionRewindTest")
+                .add(BATCH_SIZE, "1")
+                .add(RETRY_REWIND_ENABLED, "true")
+                .add(RETRY_BACKOFF_MS, "222");
+    }
+
+    @Mock
+    ArangoCollection col;
+
+    @Mock
+    SinkTaskContext context;
+
+    @BeforeEach
+    void setup() {
+        // documents with key "bad" fail with a transient error
+        Mockito.when(col.insertDocuments(anyIterable(), any())).thenAnswer(invocation -> {
+            Iterable<?> docs = invocation.getArgument(0);
+            ObjectNode doc = (ObjectNode) docs.iterator().next();
+            if ("bad".equals(doc.get("_key").textValue())) {
+                throw new ArangoDBException(createErrorEntity(503, 0));
+            }
+            MultiDocumentEntity<DocumentCreateEntity<Void>> res = new MultiDocumentEntity<>();
+            res.setDocumentsAndErrors(Collections.singletonList(new Object()));
+            res.setErrors(Collections.emptyList());
+            return res;
+        });
+    }
+
+    @Test
+    void onlyFailedPartitionsShouldBeRewound() {
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        writer.put(Arrays.asList(
+                new SinkRecord("topic", 1, null, "bad", null, map(), 10),
+                new SinkRecord("topic", 2, null, "a", null, map(), 20),
+                new SinkRecord("topic", 1, null, "b", null, map(), 11),
+                new SinkRecord("topic", 2, null, "c", null, map(), 21)
+        ));
+
+        // records of the failed partition following the failure are not written
+        verify(col, times(3)).insertDocuments(anyIterable(), any());
+        verify(context, times(1)).offset(Collections.singletonMap(tp1, 10L));
+        verify(context, times(1)).pause(tp1);
+        verify(context, times(1)).timeout(222);
+
+        Map<TopicPartition, OffsetAndMetadata> currentOffsets = new HashMap<>();
+        currentOffsets.put(tp1, new OffsetAndMetadata(12));
+        currentOffsets.put(tp2, new OffsetAndMetadata(22));
+        assertThat(writer.preCommit(currentOffsets))
+                .containsEntry(tp1, new OffsetAndMetadata(10))
+                .containsEntry(tp2, new OffsetAndMetadata(22));
+    }
+
+    @Test
+    void retriesShouldBeCountedPerPartition() {
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config().add(MAX_RETRIES, "1")), col, context);
+        SinkRecord bad = new SinkRecord("topic", 1, null, "bad", null, map(), 10);
+        SinkRecord good = new SinkRecord("topic", 2, null, "a", null, map(), 20);
+
+        writer.put(Arrays.asList(bad, good));
+        Throwable thrown = catchThrowable(() -> writer.put(Arrays.asList(bad, good)));
+        assertThat(thrown).isInstanceOf(ConnectException.class);
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.arangodb.kafka;
+
+import com.arangodb.ArangoCollection;
+import com.arangodb.entity.DocumentCreateEntity;
+import com.arangodb.entity.MultiDocumentEntity;
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.conversion.KeyConverter;
+import com.arangodb.kafka.conversion.RecordConverter;
+import com.arangodb.kafka.utils.MockTest;
+import com.arangodb.kafka.utils.Utils;
+import deployment.ArangoDbDeployment;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.arangodb.kafka.config.ArangoSinkConfig.*;
+import static com.arangodb.kafka.utils.Utils.map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@MockTest
+class RateLimitTest {
+    private final TopicPartition tp = new TopicPartition("topic", 1);
+
+    private Utils.FluentMap<String, Object> config() {
+        return map()
+                .add(CONNECTION_ENDPOINTS, ArangoDbDeployment.getInstance().getEndpoints())
+                .add(CONNECTION_COLLECTION, "RateLimitTest")
+                .add(BATCH_SIZE, "1")
+                .add(RATE_LIMIT_DOCS_PER_SEC, "1");
+    }
+
+    @Mock
+    ArangoCollection col;
+
+    @Mock
+    SinkTaskContext context;
+
+    @Test
+    void rateLimitsShouldBeSplitAcrossTasks() {
+        Map<String, String> cfg = new HashMap<>();
+        cfg.put(CONNECTION_ENDPOINTS, "a:1,b:2");
+        cfg.put(CONNECTION_COLLECTION, "RateLimitTest");
+        cfg.put(RATE_LIMIT_DOCS_PER_SEC, "100");
+        ArangoSinkConnector connector = new ArangoSinkConnector();
+        connector.start(cfg);
+
+        List<Map<String, String>> taskConfigs = connector.taskConfigs(4);
+        for (Map<String, String> taskConfig : taskConfigs) {
+            ArangoSinkConfig taskSinkConfig = new ArangoSinkConfig(taskConfig);
+            assertThat(taskSinkConfig.getRateLimitDocsPerSec()).isEqualTo(25.0);
+            assertThat(taskSinkConfig.getRateLimitBytesPerSec()).isEqualTo(0.0);
+        }
+        connector.stop();
+    }
+
+    @Test
+    void bucketShouldBeOverdrawnAndRefilled() {
+        RateLimiter limiter = new RateLimiter(10, 0);
+        List<WriteOperation> ops = new ArrayList<>();
+        KeyConverter keyConverter = new KeyConverter();
+        RecordConverter converter = new RecordConverter(keyConverter);
+        for (int i = 0; i < 20; i++) {
+            ops.add(WriteOperation.of(new SinkRecord("topic", 1, null, "k" + i, null, map(), i), keyConverter, converter));
+        }
+
+        long now = System.currentTimeMillis();
+        assertThat(limiter.acquire(ops, now)).isEqualTo(0);
+        assertThat(limiter.acquire(ops, now)).isEqualTo(1000);
+        assertThat(limiter.acquire(ops, now + 1000)).isEqualTo(0);
+    }
+
+    @Test
+    void exceededRateShouldPausePartitions() {
+        MultiDocumentEntity<DocumentCreateEntity<Void>> res = new MultiDocumentEntity<>();
+        res.setDocumentsAndErrors(Collections.singletonList(new Object()));
+        res.setErrors(Collections.emptyList());
+        Mockito.when(col.insertDocuments(anyIterable(), any())).thenReturn(res);
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        writer.put(Arrays.asList(
+                new SinkRecord("topic", 1, null, "a", null, map(), 0),
+                new SinkRecord("topic", 1, null, "b", null, map(), 1),
+                new SinkRecord("topic", 1, null, "c", null, map(), 2)
+        ));
+
+        verify(col, times(2)).insertDocuments(anyIterable(), any());
+        verify(context, times(1)).offset(Collections.singletonMap(tp, 2L));
+        verify(context, times(1)).pause(tp);
+        verify(context, times(1)).timeout(longThat(it -> it > 0 && it <= 1000));
+    }
+
+}
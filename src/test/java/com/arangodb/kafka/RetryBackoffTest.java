@@ -0,0 +1,40 @@
+package com.arangodb.kafka;
+
+import com.arangodb.kafka.config.ArangoSinkConfig.RetryBackoffStrategy;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetryBackoffTest {
+
+    @Test
+    void fixedBackoffShouldNotChange() {
+        RetryBackoff backoff = new RetryBackoff(RetryBackoffStrategy.FIXED, 100, 1000, 0);
+        assertThat(backoff.next(0)).isEqualTo(100);
+        assertThat(backoff.next(10)).isEqualTo(100);
+        assertThat(backoff.retries()).isEqualTo(2);
+        assertThat(backoff.backoffTimeMs()).isEqualTo(200);
+    }
+
+    @Test
+    void exponentialBackoffShouldBeCapped() {
+        RetryBackoff backoff = new RetryBackoff(RetryBackoffStrategy.EXPONENTIAL, 100, 1000, 0);
+        for (int i = 0; i < 100; i++) {
+            assertThat(backoff.next(0)).isBetween(0L, 100L);
+            assertThat(backoff.next(2)).isBetween(0L, 400L);
+            assertThat(backoff.next(40)).isBetween(0L, 1000L);
+        }
+    }
+
+    @Test
+    void exhaustedBudgetShouldPreventRetries() {
+        // 600 ms of backoff per window
+        RetryBackoff backoff = new RetryBackoff(RetryBackoffStrategy.FIXED, 500, 1000,
+                600.0 / RetryBackoff.BUDGET_WINDOW_MS);
+        assertThat(backoff.next(0)).isEqualTo(500);
+        assertThat(backoff.next(1)).isEqualTo(-1);
+        assertThat(backoff.retries()).isEqualTo(1);
+        assertThat(backoff.budgetExhausted()).isEqualTo(1);
+    }
+
+}
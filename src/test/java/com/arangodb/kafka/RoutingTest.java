@@ -0,0 +1,227 @@
+package com.arangodb.kafka;
+
+import com.arangodb.ArangoCollection;
+import com.arangodb.ArangoDBException;
+import com.arangodb.entity.DocumentCreateEntity;
+import com.arangodb.entity.MultiDocumentEntity;
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.conversion.TargetRouter;
+import com.arangodb.kafka.utils.MockTest;
+import com.arangodb.kafka.utils.Utils;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import deployment.ArangoDbDeployment;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.errors.RetriableException;
+import org.apache.kafka.connect.sink.ErrantRecordReporter;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static com.arangodb.kafka.config.ArangoSinkConfig.*;
+import static com.arangodb.kafka.utils.Utils.createException;
+import static com.arangodb.kafka.utils.Utils.map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@MockTest
+class RoutingTest {
+    private Utils.FluentMap<String, Object> config() {
+        return map()
+                .add(CONNECTION_ENDPOINTS, ArangoDbDeployment.getInstance().getEndpoints())
+                .add(CONNECTION_COLLECTION, "kafka_${topic}")
+                .add(COLLECTION_TOPIC_MAP, "orders:Orders");
+    }
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    ArangoCollection col;
+
+    @Mock
+    ArangoCollection ordersCol;
+
+    @Mock
+    ArangoCollection usersCol;
+
+    @Mock
+    ErrantRecordReporter reporter;
+
+    @Mock
+    SinkTaskContext context;
+
+    @Test
+    void collectionShouldBeResolvedFromTopic() {
+        TargetRouter router = new TargetRouter(new ArangoSinkConfig(config()));
+        assertThat(router.isEnabled()).isTrue();
+        assertThat(router.collection(new SinkRecord("orders", 1, null, "a", null, map(), 0), null)).isEqualTo("Orders");
+        assertThat(router.collection(new SinkRecord("app.users", 1, null, "a", null, map(), 0), null))
+                .isEqualTo("kafka_app_users");
+    }
+
+    @Test
+    void collectionShouldBeResolvedFromFieldOrHeader() {
+        TargetRouter router = new TargetRouter(new ArangoSinkConfig(config()
+                .add(COLLECTION_ROUTING_FIELD, "meta.type")
+                .add(COLLECTION_ROUTING_HEADER, "collection")));
+        ObjectNode value = JsonNodeFactory.instance.objectNode();
+        value.putObject("meta").put("type", "Users");
+
+        SinkRecord record = new SinkRecord("orders", 1, null, "a", null, map(), 0);
+        assertThat(router.collection(record, value)).isEqualTo("Users");
+        assertThat(router.collection(record, JsonNodeFactory.instance.objectNode())).isEqualTo("Orders");
+
+        record.headers().addString("collection", "Products");
+        assertThat(router.collection(record, value)).isEqualTo("Products");
+        assertThat(router.collection(record, null)).isEqualTo("Products");
+    }
+
+    @Test
+    void recordsShouldBeGroupedByCollection() {
+        Mockito.when(col.db().collection("Orders")).thenReturn(ordersCol);
+        Mockito.when(col.db().collection("kafka_users")).thenReturn(usersCol);
+        Mockito.when(ordersCol.insertDocuments(anyIterable(), any())).thenReturn(result(2));
+        Mockito.when(usersCol.insertDocuments(anyIterable(), any())).thenReturn(result(1));
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        writer.put(Arrays.asList(
+                new SinkRecord("orders", 1, null, "a", null, map(), 0),
+                new SinkRecord("users", 1, null, "b", null, map(), 0),
+                new SinkRecord("orders", 1, null, "c", null, map(), 1)
+        ));
+
+        assertThat(insertedKeys(ordersCol)).containsExactly("a", "c");
+        assertThat(insertedKeys(usersCol)).containsExactly("b");
+    }
+
+    @Test
+    void invalidRoutingFieldShouldBeReported() {
+        Mockito.when(context.errantRecordReporter()).thenReturn(reporter);
+        Mockito.when(col.db().collection("Orders")).thenReturn(ordersCol);
+        Mockito.when(ordersCol.insertDocuments(anyIterable(), any())).thenReturn(result(2));
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()
+                .add(COLLECTION_ROUTING_FIELD, "type")
+                .add(DATA_ERRORS_TOLERANCE, DataErrorsTolerance.ALL.toString())), col, context);
+        SinkRecord bad = new SinkRecord("orders", 1, null, "b", null, map().add("type", map().add("name", "Users")), 1);
+        writer.put(Arrays.asList(
+                new SinkRecord("orders", 1, null, "a", null, map(), 0),
+                bad,
+                new SinkRecord("orders", 1, null, "c", null, map(), 2)
+        ));
+
+        verify(reporter, times(1)).report(refEq(bad), argThat(e -> {
+            assertThat(e)
+                    .isInstanceOf(DataException.class)
+                    .hasMessageContaining("Routing field value cannot be read as string");
+            return true;
+        }));
+        assertThat(insertedKeys(ordersCol)).containsExactly("a", "c");
+    }
+
+    @Test
+    void missingRoutedCollectionShouldBeReported() {
+        Mockito.when(context.errantRecordReporter()).thenReturn(reporter);
+        Mockito.when(col.db().collection("Orders")).thenReturn(ordersCol);
+        Mockito.when(col.db().collection("Users")).thenReturn(usersCol);
+        Mockito.when(ordersCol.insertDocuments(anyIterable(), any())).thenReturn(result(1));
+        Mockito.when(usersCol.insertDocuments(anyIterable(), any())).thenThrow(createException(404, 1203));
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()
+                .add(COLLECTION_ROUTING_HEADER, "collection")
+                .add(DATA_ERRORS_TOLERANCE, DataErrorsTolerance.ALL.toString())), col, context);
+        SinkRecord bad = new SinkRecord("orders", 1, null, "b", null, map(), 1);
+        bad.headers().addString("collection", "Users");
+        writer.put(Arrays.asList(new SinkRecord("orders", 1, null, "a", null, map(), 0), bad));
+
+        verify(reporter, times(1)).report(refEq(bad), argThat(e -> {
+            assertThat(e)
+                    .isInstanceOf(DataException.class)
+                    .hasCauseInstanceOf(ArangoDBException.class);
+            return true;
+        }));
+        assertThat(insertedKeys(ordersCol)).containsExactly("a");
+    }
+
+    @Test
+    void missingConfiguredCollectionShouldBeRetried() {
+        Mockito.when(context.errantRecordReporter()).thenReturn(reporter);
+        Mockito.when(col.db().collection("Orders")).thenReturn(ordersCol);
+        Mockito.when(ordersCol.insertDocuments(anyIterable(), any())).thenThrow(createException(404, 1203));
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()
+                .add(COLLECTION_ROUTING_HEADER, "collection")
+                .add(DATA_ERRORS_TOLERANCE, DataErrorsTolerance.ALL.toString())), col, context);
+        Throwable thrown = catchThrowable(() ->
+                writer.put(Collections.singleton(new SinkRecord("orders", 1, null, "a", null, map(), 0))));
+
+        assertThat(thrown).isInstanceOf(RetriableException.class);
+        verify(reporter, never()).report(any(), any());
+    }
+
+    @Test
+    void databaseShouldBeResolvedFromTopicOrHeader() {
+        TargetRouter router = new TargetRouter(new ArangoSinkConfig(config()
+                .add(DATABASE_TOPIC_MAP, "orders:tenant1")
+                .add(DATABASE_ROUTING_HEADER, "tenant")));
+        SinkRecord record = new SinkRecord("orders", 1, null, "a", null, map(), 0);
+        assertThat(router.database(record)).isEqualTo("tenant1");
+        assertThat(router.database(new SinkRecord("users", 1, null, "a", null, map(), 0))).isNull();
+
+        record.headers().addString("tenant", "tenant2");
+        assertThat(router.database(record)).isEqualTo("tenant2");
+    }
+
+    @Test
+    void recordsShouldBeGroupedByDatabase() {
+        Mockito.when(col.name()).thenReturn("Orders");
+        Mockito.when(col.db().arango().db("tenant1").collection("Orders")).thenReturn(ordersCol);
+        Mockito.when(col.db().arango().db("tenant2").collection("Orders")).thenReturn(usersCol);
+        Mockito.when(ordersCol.insertDocuments(anyIterable(), any())).thenReturn(result(2));
+        Mockito.when(usersCol.insertDocuments(anyIterable(), any())).thenReturn(result(1));
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()
+                .add(CONNECTION_COLLECTION, "Orders")
+                .add(COLLECTION_TOPIC_MAP, "")
+                .add(DATABASE_ROUTING_HEADER, "tenant")), col, context);
+        List<SinkRecord> records = Arrays.asList(
+                new SinkRecord("orders", 1, null, "a", null, map(), 0),
+                new SinkRecord("orders", 1, null, "b", null, map(), 1),
+                new SinkRecord("orders", 1, null, "c", null, map(), 2)
+        );
+        records.get(0).headers().addString("tenant", "tenant1");
+        records.get(1).headers().addString("tenant", "tenant2");
+        records.get(2).headers().addString("tenant", "tenant1");
+        writer.put(records);
+
+        assertThat(insertedKeys(ordersCol)).containsExactly("a", "c");
+        assertThat(insertedKeys(usersCol)).containsExactly("b");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> insertedKeys(ArangoCollection collection) {
+        ArgumentCaptor<Iterable<Object>> inserted = ArgumentCaptor.forClass(Iterable.class);
+        verify(collection, times(1)).insertDocuments(inserted.capture(), any());
+        return StreamSupport.stream(inserted.getValue().spliterator(), false)
+                .map(it -> ((ObjectNode) it).get("_key").textValue())
+                .collect(Collectors.toList());
+    }
+
+    private MultiDocumentEntity<DocumentCreateEntity<Void>> result(int size) {
+        MultiDocumentEntity<DocumentCreateEntity<Void>> res = new MultiDocumentEntity<>();
+        res.setDocumentsAndErrors(Collections.nCopies(size, new Object()));
+        res.setErrors(Collections.emptyList());
+        return res;
+    }
+
+}
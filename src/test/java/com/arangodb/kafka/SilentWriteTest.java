@@ -0,0 +1,84 @@
+package com.arangodb.kafka;
+
+import com.arangodb.ArangoCollection;
+import com.arangodb.entity.DocumentCreateEntity;
+import com.arangodb.entity.ErrorEntity;
+import com.arangodb.entity.MultiDocumentEntity;
+import com.arangodb.kafka.config.ArangoSinkConfig;
+import com.arangodb.kafka.utils.MockTest;
+import com.arangodb.kafka.utils.Utils;
+import deployment.ArangoDbDeployment;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.arangodb.kafka.config.ArangoSinkConfig.*;
+import static com.arangodb.kafka.utils.Utils.createErrorEntity;
+import static com.arangodb.kafka.utils.Utils.map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@MockTest
+class SilentWriteTest {
+    private final List<SinkRecord> records = Arrays.asList(
+            new SinkRecord("topic", 1, null, "a", null, map(), 0),
+            new SinkRecord("topic", 1, null, "b", null, map(), 1)
+    );
+
+    private Utils.FluentMap<String, Object> config() {
+        return map()
+                .add(CONNECTION_ENDPOINTS, ArangoDbDeployment.getInstance().getEndpoints())
+                .add(CONNECTION_COLLECTION, "SilentWriteTest")
+                .add(INSERT_OVERWRITE_MODE, "replace")
+                .add(WRITE_SILENT_ENABLED, "true");
+    }
+
+    @Mock
+    ArangoCollection col;
+
+    @Mock
+    SinkTaskContext context;
+
+    @Test
+    void successfulBatchesShouldBeWrittenOnce() {
+        Mockito.when(col.insertDocuments(anyIterable(), any())).thenReturn(result());
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        writer.put(records);
+        verify(col, times(1)).insertDocuments(anyIterable(), any());
+    }
+
+    @Test
+    void batchesWithErrorsShouldBeWrittenAgainToAttributeErrors() {
+        ErrorEntity error = createErrorEntity(400, 1221);
+        Mockito.when(col.insertDocuments(anyIterable(), any())).thenReturn(
+                result(error),
+                result(new Object(), error)
+        );
+
+        ArangoWriter writer = new ArangoWriter(new ArangoSinkConfig(config()), col, context);
+        Throwable thrown = catchThrowable(() -> writer.put(records));
+        assertThat(thrown).isInstanceOf(DataException.class);
+        verify(col, times(2)).insertDocuments(anyIterable(), any());
+    }
+
+    private MultiDocumentEntity<DocumentCreateEntity<Void>> result(Object... docsAndErrors) {
+        MultiDocumentEntity<DocumentCreateEntity<Void>> res = new MultiDocumentEntity<>();
+        res.setDocumentsAndErrors(Arrays.asList(docsAndErrors));
+        res.setErrors(Arrays.stream(docsAndErrors)
+                .filter(ErrorEntity.class::isInstance)
+                .map(ErrorEntity.class::cast)
+                .collect(Collectors.toList()));
+        return res;
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.arangodb.kafka;
+
+import com.arangodb.kafka.conversion.KeyConverter;
+import com.arangodb.kafka.conversion.RecordConverter;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.jupiter.api.Test;
+
+import static com.arangodb.kafka.utils.Utils.map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class WriteOperationTest {
+
+    private final KeyConverter keyConverter = new KeyConverter();
+    private final RecordConverter converter = new RecordConverter(keyConverter);
+
+    @Test
+    void keyFromValue() {
+        SinkRecord record = new SinkRecord("topic", 1, null, "key", null, map().add("_key", "foo"), 0);
+        WriteOperation op = WriteOperation.of(record, keyConverter, converter);
+        assertThat(op.type()).isEqualTo(WriteOperation.Type.INSERT);
+        assertThat(op.key()).isEqualTo("foo");
+    }
+
+    @Test
+    void delete() {
+        SinkRecord record = new SinkRecord("topic", 1, null, "key", null, null, 0);
+        WriteOperation op = WriteOperation.of(record, keyConverter, converter);
+        assertThat(op.type()).isEqualTo(WriteOperation.Type.DELETE);
+        assertThat(op.key()).isEqualTo("key");
+        assertThat(op.payload()).isEqualTo("key");
+    }
+
+    @Test
+    void conversionErrorShouldBeThrownOnPayload() {
+        SinkRecord record = new SinkRecord("topic", 1, null, "key", null, "foo", 0);
+        WriteOperation op = WriteOperation.of(record, keyConverter, converter);
+        assertThat(op.key()).isNull();
+
+        Throwable thrown = catchThrowable(op::payload);
+        assertThat(thrown)
+                .isInstanceOf(DataException.class)
+                .hasMessageContaining("Record value cannot be read as JSON object");
+    }
+
+}
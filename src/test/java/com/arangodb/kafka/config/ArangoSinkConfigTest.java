@@ -9,6 +9,7 @@ import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.entry;
 
 class ArangoSinkConfigTest {
     private final Map<String, String> baseProps;
@@ -34,8 +35,47 @@ class ArangoSinkConfigTest {
         assertThat(config.getBoolean(ArangoSinkConfig.INSERT_MERGE_OBJECTS)).isTrue();
         assertThat(config.getBatchSize()).isEqualTo(3_000);
         assertThat(config.getBoolean(ArangoSinkConfig.DELETE_ENABLED)).isFalse();
+        assertThat(config.getMaxInFlightBatches()).isEqualTo(0);
+        assertThat(config.getWriteLanes()).isEqualTo(1);
+        assertThat(config.getWriteLanesRouting()).isEqualTo(ArangoSinkConfig.LanesRouting.PARTITION);
+        assertThat(config.isCompactionEnabled()).isFalse();
+        assertThat(config.isMixedBatchesEnabled()).isFalse();
+        assertThat(config.getWriteStrategy()).isEqualTo(ArangoSinkConfig.WriteStrategy.DOCUMENT);
+        assertThat(config.getBatchMaxBytes()).isEqualTo(0);
+        assertThat(config.getBatchLingerMs()).isEqualTo(0);
+        assertThat(config.getBackpressureQueueTimeMs()).isEqualTo(0);
+        assertThat(config.getRateLimitDocsPerSec()).isEqualTo(0.0);
+        assertThat(config.getRateLimitBytesPerSec()).isEqualTo(0.0);
+        assertThat(config.getTopicCollections()).isEmpty();
+        assertThat(config.getCollectionRoutingField()).isNull();
+        assertThat(config.getCollectionRoutingHeader()).isNull();
+        assertThat(config.getTopicDatabases()).isEmpty();
+        assertThat(config.getDatabaseRoutingHeader()).isNull();
+        assertThat(config.getEdgeFromField()).isNull();
+        assertThat(config.getEdgeFromCollection()).isNull();
+        assertThat(config.getEdgeToField()).isNull();
+        assertThat(config.getEdgeToCollection()).isNull();
+        assertThat(config.isEdgeVerticesEnabled()).isFalse();
+        assertThat(config.getVersionAttribute()).isNull();
+        assertThat(config.getVersionSource()).isEqualTo(ArangoSinkConfig.VersionSource.FIELD);
+        assertThat(config.isSilentEnabled()).isFalse();
+        assertThat(config.isCoalescingEnabled()).isFalse();
+        assertThat(config.isExactlyOnceEnabled()).isFalse();
+        assertThat(config.isAggregationEnabled()).isFalse();
+        assertThat(config.getExactlyOnceOffsetsCollection()).isEqualTo("kafka_offsets");
+        assertThat(config.isAdaptiveBatchSizeEnabled()).isFalse();
+        assertThat(config.getAdaptiveBatchMinSize()).isEqualTo(100);
         assertThat(config.getMaxRetries()).isEqualTo(10);
         assertThat(config.getRetryBackoffMs()).isEqualTo(3000);
+        assertThat(config.getMaxDocumentRetries()).isEqualTo(0);
+        assertThat(config.getDocumentRetryBackoffMs()).isEqualTo(100);
+        assertThat(config.isRetryRewindEnabled()).isFalse();
+        assertThat(config.getRetryBackoffStrategy()).isEqualTo(ArangoSinkConfig.RetryBackoffStrategy.FIXED);
+        assertThat(config.getRetryBackoffMaxMs()).isEqualTo(60_000);
+        assertThat(config.getRetryBudgetRatio()).isEqualTo(0.0);
+        assertThat(config.isCircuitBreakerEnabled()).isFalse();
+        assertThat(config.getCircuitBreakerFailureThreshold()).isEqualTo(3);
+        assertThat(config.getCircuitBreakerOpenMs()).isEqualTo(30_000);
         assertThat(config.isAcquireHostListEnabled()).isFalse();
         assertThat(config.getAcquireHostIntervalMs()).isEqualTo(60_000);
         assertThat(config.getRebalanceIntervalMs()).isEqualTo(30 * 60 * 1_000);
@@ -66,6 +106,255 @@ class ArangoSinkConfigTest {
                 .hasMessageContaining("HTTP3");
     }
 
+    @Test
+    void topicCollectionsMap() {
+        HashMap<String, String> props = new HashMap<>(baseProps);
+        props.put(ArangoSinkConfig.COLLECTION_TOPIC_MAP, "a:colA, b.c:colB");
+        assertThat(new ArangoSinkConfig(props).getTopicCollections())
+                .containsEntry("a", "colA")
+                .containsEntry("b.c", "colB")
+                .hasSize(2);
+
+        props.put(ArangoSinkConfig.COLLECTION_TOPIC_MAP, "a");
+        Throwable thrown = catchThrowable(() -> new ArangoSinkConfig(props));
+        assertThat(thrown)
+                .isInstanceOf(ConfigException.class)
+                .hasMessageContaining(ArangoSinkConfig.COLLECTION_TOPIC_MAP);
+    }
+
+    @Test
+    void topicDatabasesMap() {
+        HashMap<String, String> props = new HashMap<>(baseProps);
+        props.put(ArangoSinkConfig.DATABASE_TOPIC_MAP, "tenant1.orders:tenant1");
+        assertThat(new ArangoSinkConfig(props).getTopicDatabases())
+                .containsEntry("tenant1.orders", "tenant1")
+                .hasSize(1);
+
+        props.put(ArangoSinkConfig.DATABASE_TOPIC_MAP, "tenant1:");
+        Throwable thrown = catchThrowable(() -> new ArangoSinkConfig(props));
+        assertThat(thrown)
+                .isInstanceOf(ConfigException.class)
+                .hasMessageContaining(ArangoSinkConfig.DATABASE_TOPIC_MAP);
+    }
+
+    @Test
+    void routingFieldDoesNotSupportDeletes() {
+        HashMap<String, String> props = new HashMap<>(baseProps);
+        props.put(ArangoSinkConfig.COLLECTION_ROUTING_FIELD, "meta.type");
+        props.put(ArangoSinkConfig.DELETE_ENABLED, "true");
+        Throwable thrown = catchThrowable(() -> new ArangoSinkConfig(props));
+        assertThat(thrown)
+                .isInstanceOf(ConfigException.class)
+                .hasMessageContaining(ArangoSinkConfig.COLLECTION_ROUTING_FIELD)
+                .hasMessageContaining(ArangoSinkConfig.DELETE_ENABLED);
+
+        props.remove(ArangoSinkConfig.COLLECTION_ROUTING_FIELD);
+        props.put(ArangoSinkConfig.COLLECTION_ROUTING_HEADER, "collection");
+        assertThat(new ArangoSinkConfig(props).getCollectionRoutingHeader()).isEqualTo("collection");
+    }
+
+    @Test
+    void edgeVerticesRequireVertexCollections() {
+        HashMap<String, String> props = new HashMap<>(baseProps);
+        props.put(ArangoSinkConfig.EDGE_FROM_FIELD, "from");
+        props.put(ArangoSinkConfig.EDGE_TO_FIELD, "to");
+        props.put(ArangoSinkConfig.EDGE_VERTICES_ENABLED, "true");
+        Throwable thrown = catchThrowable(() -> new ArangoSinkConfig(props));
+        assertThat(thrown)
+                .isInstanceOf(ConfigException.class)
+                .hasMessageContaining(ArangoSinkConfig.EDGE_FROM_COLLECTION)
+                .hasMessageContaining(ArangoSinkConfig.EDGE_VERTICES_ENABLED);
+
+        props.put(ArangoSinkConfig.EDGE_FROM_COLLECTION, "Users");
+        props.put(ArangoSinkConfig.EDGE_TO_COLLECTION, "Users");
+        ArangoSinkConfig config = new ArangoSinkConfig(props);
+        assertThat(config.isEdgeVerticesEnabled()).isTrue();
+        assertThat(config.getGraphQuery())
+                .startsWith("LET vertices = (FOR v IN UNION_DISTINCT(@docs[*]._from, @docs[*]._to) "
+                        + "INSERT { _key: PARSE_IDENTIFIER(v).key } INTO `Users`")
+                .endsWith(config.getUpsertQuery());
+
+        props.put(ArangoSinkConfig.WRITE_STRATEGY, "import");
+        thrown = catchThrowable(() -> new ArangoSinkConfig(props));
+        assertThat(thrown)
+                .isInstanceOf(ConfigException.class)
+                .hasMessageContaining(ArangoSinkConfig.WRITE_STRATEGY);
+    }
+
+    @Test
+    void compactionRequiresReplace() {
+        HashMap<String, String> props = new HashMap<>(baseProps);
+        props.put(ArangoSinkConfig.WRITE_COMPACTION_ENABLED, "true");
+        Throwable thrown = catchThrowable(() -> new ArangoSinkConfig(props));
+        assertThat(thrown)
+                .isInstanceOf(ConfigException.class)
+                .hasMessageContaining(ArangoSinkConfig.WRITE_COMPACTION_ENABLED)
+                .hasMessageContaining(ArangoSinkConfig.INSERT_OVERWRITE_MODE);
+
+        props.put(ArangoSinkConfig.INSERT_OVERWRITE_MODE, "replace");
+        assertThat(new ArangoSinkConfig(props).isCompactionEnabled()).isTrue();
+    }
+
+    @Test
+    void versionAttributeRequiresOverwrite() {
+        HashMap<String, String> props = new HashMap<>(baseProps);
+        props.put(ArangoSinkConfig.INSERT_VERSION_ATTRIBUTE, "version");
+        Throwable thrown = catchThrowable(() -> new ArangoSinkConfig(props));
+        assertThat(thrown)
+                .isInstanceOf(ConfigException.class)
+                .hasMessageContaining(ArangoSinkConfig.INSERT_VERSION_ATTRIBUTE)
+                .hasMessageContaining(ArangoSinkConfig.INSERT_OVERWRITE_MODE);
+
+        props.put(ArangoSinkConfig.INSERT_OVERWRITE_MODE, "update");
+        assertThat(new ArangoSinkConfig(props).getVersionAttribute()).isEqualTo("version");
+
+        props.put(ArangoSinkConfig.WRITE_STRATEGY, "import");
+        thrown = catchThrowable(() -> new ArangoSinkConfig(props));
+        assertThat(thrown)
+                .isInstanceOf(ConfigException.class)
+                .hasMessageContaining(ArangoSinkConfig.WRITE_STRATEGY);
+    }
+
+    @Test
+    void versionAttributeRequiresDocumentWrites() {
+        HashMap<String, String> props = new HashMap<>(baseProps);
+        props.put(ArangoSinkConfig.INSERT_VERSION_ATTRIBUTE, "version");
+        props.put(ArangoSinkConfig.INSERT_OVERWRITE_MODE, "update");
+        props.put(ArangoSinkConfig.AGGREGATION_FIELDS, "views:sum");
+        Throwable thrown = catchThrowable(() -> new ArangoSinkConfig(props));
+        assertThat(thrown)
+                .isInstanceOf(ConfigException.class)
+                .hasMessageContaining(ArangoSinkConfig.INSERT_VERSION_ATTRIBUTE)
+                .hasMessageContaining(ArangoSinkConfig.AGGREGATION_FIELDS);
+
+        props.remove(ArangoSinkConfig.AGGREGATION_FIELDS);
+        props.put(ArangoSinkConfig.EDGE_FROM_FIELD, "from");
+        props.put(ArangoSinkConfig.EDGE_FROM_COLLECTION, "Users");
+        props.put(ArangoSinkConfig.EDGE_TO_FIELD, "to");
+        props.put(ArangoSinkConfig.EDGE_TO_COLLECTION, "Users");
+        props.put(ArangoSinkConfig.EDGE_VERTICES_ENABLED, "true");
+        thrown = catchThrowable(() -> new ArangoSinkConfig(props));
+        assertThat(thrown)
+                .isInstanceOf(ConfigException.class)
+                .hasMessageContaining(ArangoSinkConfig.INSERT_VERSION_ATTRIBUTE)
+                .hasMessageContaining(ArangoSinkConfig.EDGE_VERTICES_ENABLED);
+    }
+
+    @Test
+    void coalescingRequiresUpdate() {
+        HashMap<String, String> props = new HashMap<>(baseProps);
+        props.put(ArangoSinkConfig.WRITE_COALESCING_ENABLED, "true");
+        props.put(ArangoSinkConfig.INSERT_OVERWRITE_MODE, "replace");
+        Throwable thrown = catchThrowable(() -> new ArangoSinkConfig(props));
+        assertThat(thrown)
+                .isInstanceOf(ConfigException.class)
+                .hasMessageContaining(ArangoSinkConfig.WRITE_COALESCING_ENABLED)
+                .hasMessageContaining(ArangoSinkConfig.INSERT_OVERWRITE_MODE);
+
+        props.put(ArangoSinkConfig.INSERT_OVERWRITE_MODE, "update");
+        assertThat(new ArangoSinkConfig(props).isCoalescingEnabled()).isTrue();
+    }
+
+    @Test
+    void silentRequiresIdempotentOverwrite() {
+        HashMap<String, String> props = new HashMap<>(baseProps);
+        props.put(ArangoSinkConfig.WRITE_SILENT_ENABLED, "true");
+        Throwable thrown = catchThrowable(() -> new ArangoSinkConfig(props));
+        assertThat(thrown)
+                .isInstanceOf(ConfigException.class)
+                .hasMessageContaining(ArangoSinkConfig.WRITE_SILENT_ENABLED)
+                .hasMessageContaining(ArangoSinkConfig.INSERT_OVERWRITE_MODE);
+
+        props.put(ArangoSinkConfig.INSERT_OVERWRITE_MODE, "ignore");
+        assertThat(new ArangoSinkConfig(props).isSilentEnabled()).isTrue();
+    }
+
+    @Test
+    void aggregationFieldsShouldBeValidated() {
+        HashMap<String, String> props = new HashMap<>(baseProps);
+        props.put(ArangoSinkConfig.AGGREGATION_FIELDS, "views:sum,latency:avg");
+        Throwable thrown = catchThrowable(() -> new ArangoSinkConfig(props));
+        assertThat(thrown)
+                .isInstanceOf(ConfigException.class)
+                .hasMessageContaining(ArangoSinkConfig.AGGREGATION_FIELDS)
+                .hasMessageContaining("avg");
+
+        props.put(ArangoSinkConfig.AGGREGATION_FIELDS, "views:sum,latency:MIN");
+        props.put(ArangoSinkConfig.BATCH_LINGER_MS, "100");
+        thrown = catchThrowable(() -> new ArangoSinkConfig(props));
+        assertThat(thrown)
+                .isInstanceOf(ConfigException.class)
+                .hasMessageContaining(ArangoSinkConfig.BATCH_LINGER_MS);
+
+        props.remove(ArangoSinkConfig.BATCH_LINGER_MS);
+        ArangoSinkConfig config = new ArangoSinkConfig(props);
+        assertThat(config.isAggregationEnabled()).isTrue();
+        assertThat(config.getAggregationFields())
+                .containsExactly(
+                        entry("views", ArangoSinkConfig.AggregationOperator.SUM),
+                        entry("latency", ArangoSinkConfig.AggregationOperator.MIN)
+                );
+        assertThat(config.getAggregationQuery())
+                .contains("`views`: HAS(d, \"views\") ? TO_NUMBER(OLD.`views`) + d.`views` : OLD.`views`")
+                .contains("MIN([OLD.`latency`, d.`latency`])");
+    }
+
+    @Test
+    void exactlyOnceRequiresSequentialWrites() {
+        HashMap<String, String> props = new HashMap<>(baseProps);
+        props.put(ArangoSinkConfig.EXACTLY_ONCE_ENABLED, "true");
+        assertThat(new ArangoSinkConfig(props).isExactlyOnceEnabled()).isTrue();
+
+        props.put(ArangoSinkConfig.MAX_IN_FLIGHT_BATCHES, "2");
+        Throwable thrown = catchThrowable(() -> new ArangoSinkConfig(props));
+        assertThat(thrown)
+                .isInstanceOf(ConfigException.class)
+                .hasMessageContaining(ArangoSinkConfig.MAX_IN_FLIGHT_BATCHES);
+
+        props.remove(ArangoSinkConfig.MAX_IN_FLIGHT_BATCHES);
+        props.put(ArangoSinkConfig.DATABASE_ROUTING_HEADER, "tenant");
+        thrown = catchThrowable(() -> new ArangoSinkConfig(props));
+        assertThat(thrown)
+                .isInstanceOf(ConfigException.class)
+                .hasMessageContaining(ArangoSinkConfig.EXACTLY_ONCE_ENABLED);
+        props.remove(ArangoSinkConfig.DATABASE_ROUTING_HEADER);
+        props.put(ArangoSinkConfig.COLLECTION_ROUTING_FIELD, "type");
+        thrown = catchThrowable(() -> new ArangoSinkConfig(props));
+        assertThat(thrown)
+                .isInstanceOf(ConfigException.class)
+                .hasMessageContaining(ArangoSinkConfig.COLLECTION_ROUTING_FIELD);
+
+        props.remove(ArangoSinkConfig.COLLECTION_ROUTING_FIELD);
+        props.put(ArangoSinkConfig.WRITE_COALESCING_ENABLED, "true");
+        props.put(ArangoSinkConfig.INSERT_OVERWRITE_MODE, "update");
+        thrown = catchThrowable(() -> new ArangoSinkConfig(props));
+        assertThat(thrown)
+                .isInstanceOf(ConfigException.class)
+                .hasMessageContaining(ArangoSinkConfig.WRITE_COALESCING_ENABLED);
+    }
+
+    @Test
+    void aqlUpsertStrategy() {
+        HashMap<String, String> props = new HashMap<>(baseProps);
+        props.put(ArangoSinkConfig.WRITE_STRATEGY, "aql-upsert");
+        ArangoSinkConfig config = new ArangoSinkConfig(props);
+        assertThat(config.getWriteStrategy()).isEqualTo(ArangoSinkConfig.WriteStrategy.AQL_UPSERT);
+        assertThat(config.getUpsertQuery())
+                .startsWith("FOR d IN @docs INSERT d INTO @@collection")
+                .contains("overwriteMode: \"conflict\"");
+
+        props.put(ArangoSinkConfig.WRITE_AQL_UPDATE_EXPRESSION, "{ count: OLD.count + d.count }");
+        assertThat(new ArangoSinkConfig(props).getUpsertQuery())
+                .contains("UPSERT { _key: d._key } INSERT d UPDATE { count: OLD.count + d.count } IN @@collection");
+    }
+
+    @Test
+    void importStrategy() {
+        HashMap<String, String> props = new HashMap<>(baseProps);
+        props.put(ArangoSinkConfig.WRITE_STRATEGY, "import");
+        assertThat(new ArangoSinkConfig(props).getWriteStrategy()).isEqualTo(ArangoSinkConfig.WriteStrategy.IMPORT);
+    }
+
     @Test
     void invalidContentType() {
         HashMap<String, String> props = new HashMap<>(baseProps);
@@ -3,8 +3,11 @@ package com.arangodb.kafka.utils;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
 import com.arangodb.ArangoCollection;
+import com.arangodb.ArangoDBException;
+import com.arangodb.entity.ErrorEntity;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Field;
 import java.time.Duration;
 import java.util.AbstractMap;
 import java.util.LinkedHashMap;
@@ -63,6 +66,28 @@ public final class Utils {
         return memoryAppender;
     }
 
+    public static ArangoDBException createException(int code, int errNum) {
+        return new ArangoDBException(createErrorEntity(code, errNum));
+    }
+
+    public static ErrorEntity createErrorEntity(int code, int errNum) {
+        ErrorEntity ee = new ErrorEntity();
+
+        try {
+            Field cf = ee.getClass().getDeclaredField("code");
+            cf.setAccessible(true);
+            cf.setInt(ee, code);
+
+            Field ef = ee.getClass().getDeclaredField("errorNum");
+            ef.setAccessible(true);
+            ef.setInt(ee, errNum);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        return ee;
+    }
+
     public static class FluentMap<K, V> extends LinkedHashMap<K, V> {
         public FluentMap<K, V> add(K key, V value) {
             super.put(key, value);